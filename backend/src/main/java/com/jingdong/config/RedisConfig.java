@@ -0,0 +1,27 @@
+package com.jingdong.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis配置类
+ * 提供Redis消息监听容器，用于跨节点的本地缓存失效通知
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Redis消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
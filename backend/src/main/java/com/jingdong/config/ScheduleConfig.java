@@ -0,0 +1,16 @@
+package com.jingdong.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 开启Spring定时任务，用于库存写回等后台任务
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Configuration
+@EnableScheduling
+public class ScheduleConfig {
+}
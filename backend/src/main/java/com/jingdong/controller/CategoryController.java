@@ -0,0 +1,86 @@
+package com.jingdong.controller;
+
+import com.jingdong.common.Result;
+import com.jingdong.service.CategoryService;
+import com.jingdong.vo.CategoryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * 商品分类控制器
+ * 处理商品分类相关的HTTP请求
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@RestController
+@RequestMapping("/category")
+@Validated
+public class CategoryController {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    /**
+     * 获取顶级分类列表
+     * 
+     * @return 顶级分类列表
+     */
+    @GetMapping("/list")
+    public Result<List<CategoryVO>> getCategoryList() {
+        log.info("获取分类列表请求");
+        return Result.success(categoryService.getCategoryList());
+    }
+
+    /**
+     * 获取完整分类树
+     * 
+     * @return 分类树
+     */
+    @GetMapping("/tree")
+    public Result<List<CategoryVO>> getCategoryTree() {
+        log.info("获取分类树请求");
+        return Result.success(categoryService.getCategoryTree());
+    }
+
+    /**
+     * 获取导航栏分类
+     * 
+     * @return 导航栏分类列表
+     */
+    @GetMapping("/nav")
+    public Result<List<CategoryVO>> getNavCategories() {
+        log.info("获取导航栏分类请求");
+        return Result.success(categoryService.getNavCategories());
+    }
+
+    /**
+     * 获取分类子树
+     * 
+     * @param categoryId 分类ID
+     * @return 分类（含各级子分类）
+     */
+    @GetMapping("/{categoryId}/subtree")
+    public Result<CategoryVO> getSubtree(@PathVariable @NotNull Long categoryId) {
+        log.info("获取分类子树请求，分类ID：{}", categoryId);
+        return Result.success(categoryService.getSubtree(categoryId));
+    }
+
+    /**
+     * 获取分类路径（面包屑）
+     * 
+     * @param categoryId 分类ID
+     * @return 从顶级分类到当前分类的路径
+     */
+    @GetMapping("/{categoryId}/path")
+    public Result<List<CategoryVO>> getCategoryPath(@PathVariable @NotNull Long categoryId) {
+        log.info("获取分类路径请求，分类ID：{}", categoryId);
+        return Result.success(categoryService.getCategoryPath(categoryId));
+    }
+}
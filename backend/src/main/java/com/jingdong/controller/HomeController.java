@@ -0,0 +1,43 @@
+package com.jingdong.controller;
+
+import com.jingdong.common.Result;
+import com.jingdong.service.HomeService;
+import com.jingdong.vo.HomeFeedVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * 首页控制器
+ * 处理首页相关的HTTP请求
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@RestController
+@RequestMapping("/home")
+@Validated
+public class HomeController {
+
+    @Autowired
+    private HomeService homeService;
+
+    /**
+     * 获取首页数据（分类、导航分类、推荐、热销、新品）
+     * 
+     * @param limit 每个商品楼层的商品数量
+     * @return 首页数据
+     */
+    @GetMapping("/feed")
+    public Result<HomeFeedVO> getHomeFeed(@RequestParam(defaultValue = "8") @Min(1) @Max(20) Integer limit) {
+        log.info("获取首页数据请求，楼层商品数量：{}", limit);
+        
+        HomeFeedVO homeFeed = homeService.getHomeFeed(limit);
+        return Result.success(homeFeed);
+    }
+}
@@ -4,17 +4,25 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.jingdong.common.Result;
 import com.jingdong.dto.OrderCreateDTO;
 import com.jingdong.dto.OrderQueryDTO;
+import com.jingdong.service.OrderCountService;
 import com.jingdong.service.OrderService;
 import com.jingdong.utils.JwtUtils;
+import com.jingdong.vo.OrderBatchShipVO;
+import com.jingdong.vo.OrderCountVO;
+import com.jingdong.vo.OrderCursorPageVO;
 import com.jingdong.vo.OrderVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * 订单控制器
@@ -32,6 +40,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderCountService orderCountService;
+
     @Autowired
     private JwtUtils jwtUtils;
 
@@ -53,20 +64,40 @@ public class OrderController {
 
     /**
      * 分页查询订单列表
+     * pageMode=cursor时使用游标分页，返回nextCursor供下一页使用
      * 
      * @param orderQueryDTO 查询条件
      * @param request HTTP请求对象
-     * @return 订单分页列表
+     * @return 订单分页列表（页码分页）或订单游标分页列表（游标分页）
      */
     @GetMapping("/list")
-    public Result<IPage<OrderVO>> getOrderList(@Valid OrderQueryDTO orderQueryDTO, HttpServletRequest request) {
+    public Result<?> getOrderList(@Valid OrderQueryDTO orderQueryDTO, HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
-        log.info("查询订单列表请求，用户ID：{}", userId);
+        log.info("查询订单列表请求，用户ID：{}，分页方式：{}", userId, orderQueryDTO.getPageMode());
         
+        if ("cursor".equals(orderQueryDTO.getPageMode())) {
+            OrderCursorPageVO cursorPage = orderService.getOrderListByCursor(userId, orderQueryDTO);
+            return Result.success(cursorPage);
+        }
         IPage<OrderVO> orderPage = orderService.getOrderList(userId, orderQueryDTO);
         return Result.success(orderPage);
     }
 
+    /**
+     * 获取各状态订单数量
+     * 
+     * @param request HTTP请求对象
+     * @return 订单数量统计
+     */
+    @GetMapping("/counts")
+    public Result<OrderCountVO> getOrderCounts(HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        log.info("查询订单数量请求，用户ID：{}", userId);
+        
+        OrderCountVO orderCountVO = orderCountService.getOrderCounts(userId);
+        return Result.success(orderCountVO);
+    }
+
     /**
      * 获取订单详情
      * 
@@ -161,6 +192,40 @@ public class OrderController {
         return Result.success(result);
     }
 
+    /**
+     * 批量发货（管理员功能）
+     * 
+     * @param orderIds 订单ID列表
+     * @return 批量发货结果
+     */
+    @PostMapping("/ship/batch")
+    public Result<OrderBatchShipVO> batchShipOrders(@RequestBody @NotEmpty(message = "订单ID列表不能为空") List<Long> orderIds) {
+        log.info("批量发货请求，订单数量：{}", orderIds.size());
+        
+        OrderBatchShipVO batchShipVO = orderService.batchShipOrders(orderIds);
+        return Result.success(batchShipVO);
+    }
+
+    /**
+     * 从CSV文件批量发货（管理员功能）
+     * 每行第一列为订单ID，表头等无法解析的行会被跳过
+     * 
+     * @param file CSV文件
+     * @return 批量发货结果
+     */
+    @PostMapping("/ship/batch/csv")
+    public Result<OrderBatchShipVO> batchShipOrdersFromCsv(@RequestParam("file") MultipartFile file) {
+        log.info("CSV批量发货请求，文件：{}，大小：{}", file.getOriginalFilename(), file.getSize());
+        
+        try {
+            OrderBatchShipVO batchShipVO = orderService.batchShipOrders(file.getInputStream());
+            return Result.success(batchShipVO);
+        } catch (IOException e) {
+            log.error("读取发货文件失败", e);
+            return Result.error("读取发货文件失败");
+        }
+    }
+
     /**
      * 从请求中获取当前用户ID
      * 
@@ -0,0 +1,156 @@
+package com.jingdong.controller;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.jingdong.common.Result;
+import com.jingdong.dto.ProductQueryDTO;
+import com.jingdong.service.ProductService;
+import com.jingdong.vo.ProductFacetVO;
+import com.jingdong.vo.ProductVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * 商品控制器
+ * 处理商品相关的HTTP请求
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@RestController
+@RequestMapping("/product")
+@Validated
+public class ProductController {
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * 分页查询商品列表
+     * 
+     * @param productQueryDTO 查询条件
+     * @return 商品分页列表
+     */
+    @GetMapping("/list")
+    public Result<IPage<ProductVO>> getProductList(@Valid ProductQueryDTO productQueryDTO) {
+        log.info("查询商品列表请求");
+        
+        IPage<ProductVO> productPage = productService.getProductList(productQueryDTO);
+        return Result.success(productPage);
+    }
+
+    /**
+     * 搜索商品
+     * 
+     * @param productQueryDTO 搜索条件
+     * @return 商品分页列表
+     */
+    @GetMapping("/search")
+    public Result<IPage<ProductVO>> searchProducts(@Valid ProductQueryDTO productQueryDTO) {
+        log.info("搜索商品请求，关键词：{}", productQueryDTO.getKeyword());
+        
+        IPage<ProductVO> productPage = productService.searchProducts(productQueryDTO);
+        return Result.success(productPage);
+    }
+
+    /**
+     * 获取商品筛选面板
+     * 
+     * @param productQueryDTO 查询条件
+     * @return 各品牌、价格区间、分类的商品数量
+     */
+    @GetMapping("/facets")
+    public Result<ProductFacetVO> getProductFacets(@Valid ProductQueryDTO productQueryDTO) {
+        log.info("获取商品筛选面板请求");
+        
+        ProductFacetVO facetVO = productService.getProductFacets(productQueryDTO);
+        return Result.success(facetVO);
+    }
+
+    /**
+     * 获取推荐商品
+     * 
+     * @param limit 限制数量
+     * @return 推荐商品列表
+     */
+    @GetMapping("/recommend")
+    public Result<List<ProductVO>> getRecommendProducts(@RequestParam(defaultValue = "10") @Min(1) @Max(100) Integer limit) {
+        List<ProductVO> products = productService.getRecommendProducts(limit);
+        return Result.success(products);
+    }
+
+    /**
+     * 获取热销商品
+     * 
+     * @param limit 限制数量
+     * @return 热销商品列表
+     */
+    @GetMapping("/hot")
+    public Result<List<ProductVO>> getHotProducts(@RequestParam(defaultValue = "10") @Min(1) @Max(100) Integer limit) {
+        List<ProductVO> products = productService.getHotProducts(limit);
+        return Result.success(products);
+    }
+
+    /**
+     * 获取销量排行
+     * 
+     * @param days 窗口天数（7-近7天，30-近30天，不支持其他天数）
+     * @param limit 限制数量
+     * @return 按销量降序排列的商品列表
+     */
+    @GetMapping("/ranking")
+    public Result<List<ProductVO>> getSalesRanking(@RequestParam(defaultValue = "7") Integer days,
+                                                  @RequestParam(defaultValue = "10") @Min(1) @Max(100) Integer limit) {
+        List<ProductVO> products = productService.getSalesRanking(days, limit);
+        return Result.success(products);
+    }
+
+    /**
+     * 获取新品商品
+     * 
+     * @param limit 限制数量
+     * @return 新品商品列表
+     */
+    @GetMapping("/new")
+    public Result<List<ProductVO>> getNewProducts(@RequestParam(defaultValue = "10") @Min(1) @Max(100) Integer limit) {
+        List<ProductVO> products = productService.getNewProducts(limit);
+        return Result.success(products);
+    }
+
+    /**
+     * 根据分类获取商品列表
+     * 
+     * @param categoryId 分类ID
+     * @param limit 限制数量
+     * @return 商品列表
+     */
+    @GetMapping("/category/{categoryId}")
+    public Result<List<ProductVO>> getProductsByCategory(@PathVariable @NotNull Long categoryId,
+                                                        @RequestParam(defaultValue = "20") @Min(1) @Max(100) Integer limit) {
+        List<ProductVO> products = productService.getProductsByCategory(categoryId, limit);
+        return Result.success(products);
+    }
+
+    /**
+     * 获取商品详情（同时记录一次浏览）
+     * 
+     * @param productId 商品ID
+     * @return 商品详情
+     */
+    @GetMapping("/{productId}")
+    public Result<ProductVO> getProductDetail(@PathVariable @NotNull Long productId) {
+        log.info("获取商品详情请求，商品ID：{}", productId);
+        
+        ProductVO productVO = productService.getProductDetail(productId);
+        productService.increaseViewCount(productId);
+        return Result.success(productVO);
+    }
+}
@@ -0,0 +1,110 @@
+package com.jingdong.controller;
+
+import com.jingdong.common.Result;
+import com.jingdong.dto.SeckillOrderDTO;
+import com.jingdong.service.SeckillService;
+import com.jingdong.utils.JwtUtils;
+import com.jingdong.vo.SeckillTicketVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 秒杀控制器
+ * 处理秒杀活动和秒杀下单相关的HTTP请求
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@RestController
+@RequestMapping("/seckill")
+@Validated
+public class SeckillController {
+
+    @Autowired
+    private SeckillService seckillService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    /**
+     * 秒杀抢购
+     * 
+     * @param seckillOrderDTO 秒杀下单信息
+     * @param request HTTP请求对象
+     * @return 排队凭证
+     */
+    @PostMapping("/order")
+    public Result<SeckillTicketVO> submitOrder(@Valid @RequestBody SeckillOrderDTO seckillOrderDTO, HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        
+        SeckillTicketVO ticketVO = seckillService.submitOrder(userId, seckillOrderDTO);
+        return Result.success("抢购成功，正在排队下单", ticketVO);
+    }
+
+    /**
+     * 查询排队结果
+     * 
+     * @param ticket 排队凭证
+     * @param request HTTP请求对象
+     * @return 排队结果
+     */
+    @GetMapping("/ticket/{ticket}")
+    public Result<SeckillTicketVO> getTicket(@PathVariable @NotBlank String ticket, HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        
+        SeckillTicketVO ticketVO = seckillService.getTicket(userId, ticket);
+        return Result.success(ticketVO);
+    }
+
+    /**
+     * 开启秒杀活动（管理员功能）
+     * 
+     * @param productId 商品ID
+     * @param stock 活动库存
+     * @return 操作结果
+     */
+    @PutMapping("/{productId}/open")
+    public Result<String> openActivity(@PathVariable @NotNull Long productId, @RequestParam @NotNull Integer stock) {
+        log.info("开启秒杀活动请求，商品ID：{}，活动库存：{}", productId, stock);
+        
+        String result = seckillService.openActivity(productId, stock);
+        return Result.success(result);
+    }
+
+    /**
+     * 结束秒杀活动（管理员功能）
+     * 
+     * @param productId 商品ID
+     * @return 操作结果
+     */
+    @PutMapping("/{productId}/close")
+    public Result<String> closeActivity(@PathVariable @NotNull Long productId) {
+        log.info("结束秒杀活动请求，商品ID：{}", productId);
+        
+        String result = seckillService.closeActivity(productId);
+        return Result.success(result);
+    }
+
+    /**
+     * 从请求中获取当前用户ID
+     * 
+     * @param request HTTP请求对象
+     * @return 用户ID
+     */
+    private Long getCurrentUserId(HttpServletRequest request) {
+        String token = request.getHeader("Authorization");
+        if (token != null && token.startsWith("Bearer ")) {
+            token = token.substring(7);
+            return jwtUtils.getUserIdFromToken(token);
+        }
+        throw new RuntimeException("未登录或登录已过期");
+    }
+}
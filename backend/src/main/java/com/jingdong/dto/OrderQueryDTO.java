@@ -26,6 +26,17 @@ public class OrderQueryDTO {
     @Min(value = 1, message = "每页大小必须大于0")
     private Integer pageSize = 10;
 
+    /**
+     * 分页方式（page-页码分页，cursor-游标分页）
+     * 游标分页按（创建时间，订单ID）向后翻页，不统计总数，翻页深度不影响性能
+     */
+    private String pageMode = "page";
+
+    /**
+     * 游标（游标分页时使用，取上一页返回的nextCursor，首页不传）
+     */
+    private String cursor;
+
     /**
      * 订单状态
      * 0-待付款，1-待发货，2-待收货，3-待评价，4-已完成，5-已取消，6-已退款
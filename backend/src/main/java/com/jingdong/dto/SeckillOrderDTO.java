@@ -0,0 +1,62 @@
+package com.jingdong.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 秒杀下单DTO
+ * 用于接收秒杀抢购的请求参数
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class SeckillOrderDTO {
+
+    /**
+     * 商品ID
+     */
+    @NotNull(message = "商品ID不能为空")
+    private Long productId;
+
+    /**
+     * 购买数量
+     */
+    @NotNull(message = "购买数量不能为空")
+    @Min(value = 1, message = "购买数量必须大于0")
+    @Max(value = 5, message = "每人限购5件")
+    private Integer quantity = 1;
+
+    /**
+     * 支付方式（1-支付宝，2-微信，3-银行卡）
+     */
+    @NotNull(message = "支付方式不能为空")
+    private Integer paymentMethod;
+
+    /**
+     * 收货人姓名
+     */
+    @NotBlank(message = "收货人姓名不能为空")
+    private String receiverName;
+
+    /**
+     * 收货人手机号
+     */
+    @NotBlank(message = "收货人手机号不能为空")
+    private String receiverPhone;
+
+    /**
+     * 收货地址
+     */
+    @NotBlank(message = "收货地址不能为空")
+    private String receiverAddress;
+
+    /**
+     * 订单备注
+     */
+    private String remark;
+}
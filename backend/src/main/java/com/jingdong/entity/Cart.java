@@ -6,6 +6,7 @@ import lombok.Data;
 import javax.persistence.*;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -22,11 +23,10 @@ import java.time.LocalDateTime;
 public class Cart {
 
     /**
-     * 购物车ID（主键）
+     * 购物车ID（主键，由号段生成器在内存中分配）
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long cartId;
 
     /**
@@ -77,4 +77,32 @@ public class Cart {
     @TableLogic
     @Column(columnDefinition = "TINYINT DEFAULT 0")
     private Integer deleted;
+
+    /**
+     * 商品名称（关联查询字段，非表字段）
+     */
+    @Transient
+    @TableField(exist = false)
+    private String productName;
+
+    /**
+     * 商品价格（关联查询字段，非表字段）
+     */
+    @Transient
+    @TableField(exist = false)
+    private BigDecimal price;
+
+    /**
+     * 商品主图（关联查询字段，非表字段）
+     */
+    @Transient
+    @TableField(exist = false)
+    private String mainImage;
+
+    /**
+     * 商品库存（关联查询字段，非表字段）
+     */
+    @Transient
+    @TableField(exist = false)
+    private Integer stock;
 }
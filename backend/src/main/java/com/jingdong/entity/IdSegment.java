@@ -0,0 +1,55 @@
+package com.jingdong.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 号段实体类
+ * 对应数据库中的id_segment表，每个业务标识一行，记录已分配出去的最大ID
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+@Entity
+@Table(name = "id_segment")
+@TableName("id_segment")
+public class IdSegment {
+
+    /**
+     * 业务标识（主键，一般为表名）
+     */
+    @Id
+    @TableId(type = IdType.INPUT)
+    @Column(length = 64)
+    private String bizTag;
+
+    /**
+     * 已分配出去的最大ID
+     */
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long maxId;
+
+    /**
+     * 每次分配的号段长度
+     */
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 1000")
+    private Integer step;
+
+    /**
+     * 描述
+     */
+    @Column(length = 200)
+    private String description;
+
+    /**
+     * 更新时间
+     */
+    @Column(nullable = false)
+    private LocalDateTime updateTime;
+}
@@ -24,11 +24,10 @@ import java.time.LocalDateTime;
 public class Order {
 
     /**
-     * 订单ID（主键）
+     * 订单ID（主键，由号段生成器在内存中分配）
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long orderId;
 
     /**
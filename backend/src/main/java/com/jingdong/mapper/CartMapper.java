@@ -2,11 +2,13 @@ package com.jingdong.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.jingdong.entity.Cart;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -32,6 +34,30 @@ public interface CartMapper extends BaseMapper<Cart> {
             "ORDER BY c.create_time DESC")
     List<Cart> findCartWithProductByUserId(@Param("userId") Long userId);
 
+    /**
+     * 根据用户ID查询购物车项（不关联商品，按加入时间倒序）
+     * 
+     * @param userId 用户ID
+     * @return 购物车项列表
+     */
+    @Select("SELECT * FROM cart WHERE user_id = #{userId} AND deleted = 0 ORDER BY create_time DESC")
+    List<Cart> findByUserId(@Param("userId") Long userId);
+
+    /**
+     * 根据用户ID和购物车ID列表查询购物车项（只返回属于该用户且未删除的）
+     * 
+     * @param userId 用户ID
+     * @param cartIds 购物车ID列表
+     * @return 购物车项列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM cart WHERE user_id = #{userId} AND deleted = 0 AND cart_id IN " +
+            "<foreach collection='cartIds' item='cartId' open='(' separator=',' close=')'>" +
+            "#{cartId}" +
+            "</foreach>" +
+            "</script>")
+    List<Cart> findByUserIdAndCartIds(@Param("userId") Long userId, @Param("cartIds") Collection<Long> cartIds);
+
     /**
      * 根据用户ID和商品ID查询购物车项
      * 
@@ -43,24 +69,28 @@ public interface CartMapper extends BaseMapper<Cart> {
     Cart findByUserIdAndProductId(@Param("userId") Long userId, @Param("productId") Long productId);
 
     /**
-     * 更新购物车商品数量
+     * 更新购物车商品数量（只更新属于该用户且未删除的购物车项）
      * 
+     * @param userId 用户ID
      * @param cartId 购物车ID
      * @param quantity 商品数量
      * @return 影响行数
      */
-    @Update("UPDATE cart SET quantity = #{quantity}, update_time = NOW() WHERE cart_id = #{cartId}")
-    int updateQuantity(@Param("cartId") Long cartId, @Param("quantity") Integer quantity);
+    @Update("UPDATE cart SET quantity = #{quantity}, update_time = NOW() " +
+            "WHERE cart_id = #{cartId} AND user_id = #{userId} AND deleted = 0")
+    int updateQuantity(@Param("userId") Long userId, @Param("cartId") Long cartId, @Param("quantity") Integer quantity);
 
     /**
-     * 更新购物车商品选中状态
+     * 更新购物车商品选中状态（只更新属于该用户且未删除的购物车项）
      * 
+     * @param userId 用户ID
      * @param cartId 购物车ID
      * @param selected 选中状态
      * @return 影响行数
      */
-    @Update("UPDATE cart SET selected = #{selected}, update_time = NOW() WHERE cart_id = #{cartId}")
-    int updateSelected(@Param("cartId") Long cartId, @Param("selected") Integer selected);
+    @Update("UPDATE cart SET selected = #{selected}, update_time = NOW() " +
+            "WHERE cart_id = #{cartId} AND user_id = #{userId} AND deleted = 0")
+    int updateSelected(@Param("userId") Long userId, @Param("cartId") Long cartId, @Param("selected") Integer selected);
 
     /**
      * 批量更新购物车商品选中状态
@@ -78,22 +108,54 @@ public interface CartMapper extends BaseMapper<Cart> {
      * @param userId 用户ID
      * @return 影响行数
      */
-    @Update("UPDATE cart SET deleted = 1, update_time = NOW() WHERE user_id = #{userId}")
+    @Update("UPDATE cart SET deleted = 1, update_time = NOW() WHERE user_id = #{userId} AND deleted = 0")
     int deleteByUserId(@Param("userId") Long userId);
 
     /**
-     * 根据购物车ID列表删除购物车项
+     * 根据购物车ID列表删除用户的购物车项（只删除属于该用户且未删除的）
      * 
+     * @param userId 用户ID
      * @param cartIds 购物车ID列表
      * @return 影响行数
      */
     @Update("<script>" +
-            "UPDATE cart SET deleted = 1, update_time = NOW() WHERE cart_id IN " +
+            "UPDATE cart SET deleted = 1, update_time = NOW() WHERE user_id = #{userId} AND deleted = 0 AND cart_id IN " +
             "<foreach collection='cartIds' item='cartId' open='(' separator=',' close=')'>" +
             "#{cartId}" +
             "</foreach>" +
             "</script>")
-    int deleteByCartIds(@Param("cartIds") List<Long> cartIds);
+    int deleteByUserIdAndCartIds(@Param("userId") Long userId, @Param("cartIds") Collection<Long> cartIds);
+
+    /**
+     * 批量写入购物车项：同一用户同一商品已有记录（包括已删除的）时覆盖为新的购物车项
+     * 
+     * @param carts 购物车项列表（需预先分配购物车ID）
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO cart (cart_id, user_id, product_id, quantity, selected, create_time, update_time, deleted) VALUES " +
+            "<foreach collection='carts' item='cart' separator=','>" +
+            "(#{cart.cartId}, #{cart.userId}, #{cart.productId}, #{cart.quantity}, #{cart.selected}, #{cart.createTime}, NOW(), 0)" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE cart_id = VALUES(cart_id), quantity = VALUES(quantity), selected = VALUES(selected), " +
+            "create_time = VALUES(create_time), update_time = NOW(), deleted = 0" +
+            "</script>")
+    int upsertBatch(@Param("carts") List<Cart> carts);
+
+    /**
+     * 删除用户购物车中不在保留列表里的购物车项
+     * 
+     * @param userId 用户ID
+     * @param keepCartIds 保留的购物车ID列表（为空时删除全部）
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE cart SET deleted = 1, update_time = NOW() WHERE user_id = #{userId} AND deleted = 0" +
+            "<if test='keepCartIds != null and keepCartIds.size() > 0'> AND cart_id NOT IN " +
+            "<foreach collection='keepCartIds' item='cartId' open='(' separator=',' close=')'>#{cartId}</foreach>" +
+            "</if>" +
+            "</script>")
+    int deleteByUserIdExcluding(@Param("userId") Long userId, @Param("keepCartIds") Collection<Long> keepCartIds);
 
     /**
      * 统计用户购物车商品总数
@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品分类Mapper接口
@@ -52,6 +53,14 @@ public interface CategoryMapper extends BaseMapper<Category> {
     @Select("SELECT * FROM category WHERE parent_id = 0 AND status = 1 AND deleted = 0 ORDER BY sort_order ASC, create_time ASC")
     List<Category> findTopCategories();
 
+    /**
+     * 一次查询所有启用的分类（用于在内存中组装分类树）
+     * 
+     * @return 分类列表
+     */
+    @Select("SELECT * FROM category WHERE status = 1 AND deleted = 0 ORDER BY sort_order ASC, create_time ASC")
+    List<Category> findAllActive();
+
     /**
      * 检查分类名称是否存在（同级别下）
      * 
@@ -73,4 +82,13 @@ public interface CategoryMapper extends BaseMapper<Category> {
      */
     @Select("SELECT COUNT(1) FROM product WHERE category_id = #{categoryId} AND deleted = 0")
     int countProductsByCategory(@Param("categoryId") Long categoryId);
+
+    /**
+     * 按分类分组统计在售商品数量（一次查询统计所有分类）
+     * 
+     * @return 统计结果（categoryId, productCount）
+     */
+    @Select("SELECT category_id AS categoryId, COUNT(1) AS productCount FROM product " +
+            "WHERE status = 1 AND deleted = 0 GROUP BY category_id")
+    List<Map<String, Object>> countOnSaleProductsGroupByCategory();
 }
@@ -0,0 +1,50 @@
+package com.jingdong.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.jingdong.entity.IdSegment;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 号段Mapper接口
+ * 继承MyBatis Plus的BaseMapper，提供基础的CRUD操作
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Mapper
+public interface IdSegmentMapper extends BaseMapper<IdSegment> {
+
+    /**
+     * 分配下一个号段（最大ID增加一个步长）
+     * 
+     * @param bizTag 业务标识
+     * @return 影响行数
+     */
+    @Update("UPDATE id_segment SET max_id = max_id + step, update_time = NOW() WHERE biz_tag = #{bizTag}")
+    int allocateSegment(@Param("bizTag") String bizTag);
+
+    /**
+     * 根据业务标识查询号段
+     * 
+     * @param bizTag 业务标识
+     * @return 号段信息
+     */
+    @Select("SELECT * FROM id_segment WHERE biz_tag = #{bizTag}")
+    IdSegment findByBizTag(@Param("bizTag") String bizTag);
+
+    /**
+     * 号段不存在时按业务表当前的最大主键插入号段（已存在时忽略）
+     * 
+     * @param bizTag 业务标识（表名）
+     * @param keyColumn 主键列名
+     * @param step 号段长度
+     * @return 影响行数
+     */
+    @Insert("INSERT IGNORE INTO id_segment (biz_tag, max_id, step, description, update_time) " +
+            "SELECT #{bizTag}, COALESCE(MAX(${keyColumn}), 0), #{step}, '自动初始化', NOW() FROM ${bizTag}")
+    int insertFromMaxId(@Param("bizTag") String bizTag, @Param("keyColumn") String keyColumn, @Param("step") int step);
+}
@@ -7,7 +7,9 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 订单详情Mapper接口
@@ -55,16 +57,28 @@ public interface OrderItemMapper extends BaseMapper<OrderItem> {
     int countSalesByProductId(@Param("productId") Long productId);
 
     /**
-     * 批量插入订单详情
+     * 批量插入订单详情（订单详情ID需预先分配）
      *
      * @param orderItems 订单详情列表
      * @return 影响行数
      */
     @Insert("<script>" +
-            "INSERT INTO order_item (order_id, product_id, product_name, product_image, product_price, quantity, total_price, create_time, update_time) VALUES " +
+            "INSERT INTO order_item (order_item_id, order_id, product_id, product_name, product_image, product_price, quantity, total_price, create_time, update_time) VALUES " +
             "<foreach collection='orderItems' item='item' separator=','>" +
-            "(#{item.orderId}, #{item.productId}, #{item.productName}, #{item.productImage}, #{item.productPrice}, #{item.quantity}, #{item.totalPrice}, #{item.createTime}, #{item.updateTime})" +
+            "(#{item.orderItemId}, #{item.orderId}, #{item.productId}, #{item.productName}, #{item.productImage}, #{item.productPrice}, #{item.quantity}, #{item.totalPrice}, #{item.createTime}, #{item.updateTime})" +
             "</foreach>" +
             "</script>")
     int batchInsert(@Param("orderItems") List<OrderItem> orderItems);
+
+    /**
+     * 按商品和支付日期汇总指定时间之后已支付订单的销量（用于重建滚动窗口销量排行）
+     * 
+     * @param startTime 起始支付时间
+     * @return 汇总结果（productId, salesDate, quantity）
+     */
+    @Select("SELECT oi.product_id AS productId, DATE(o.payment_time) AS salesDate, SUM(oi.quantity) AS quantity " +
+            "FROM orders o INNER JOIN order_item oi ON oi.order_id = o.order_id " +
+            "WHERE o.payment_time >= #{startTime} AND o.status IN (1, 2, 3, 4) AND o.deleted = 0 AND oi.deleted = 0 " +
+            "GROUP BY oi.product_id, DATE(o.payment_time)")
+    List<Map<String, Object>> sumDailySalesSince(@Param("startTime") LocalDateTime startTime);
 }
@@ -4,11 +4,17 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.jingdong.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 订单Mapper接口
  * 继承MyBatis Plus的BaseMapper，提供基础的CRUD操作
@@ -36,6 +42,44 @@ public interface OrderMapper extends BaseMapper<Order> {
                                       @Param("userId") Long userId, 
                                       @Param("status") Integer status);
 
+    /**
+     * 游标分页查询用户订单列表
+     * 按（创建时间，订单ID）倒序，从游标位置之后开始取，不统计总数
+     * 
+     * @param userId 用户ID
+     * @param status 订单状态（可选）
+     * @param cursorTime 游标位置的创建时间（首页为空）
+     * @param cursorOrderId 游标位置的订单ID（首页为空）
+     * @param limit 查询数量
+     * @return 订单列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders WHERE user_id = #{userId} AND deleted = 0 " +
+            "<if test='status != null'> AND status = #{status} </if>" +
+            "<if test='cursorTime != null'> AND (create_time &lt; #{cursorTime} OR (create_time = #{cursorTime} AND order_id &lt; #{cursorOrderId})) </if>" +
+            "ORDER BY create_time DESC, order_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Order> findOrdersByUserIdAfterCursor(@Param("userId") Long userId,
+                                              @Param("status") Integer status,
+                                              @Param("cursorTime") LocalDateTime cursorTime,
+                                              @Param("cursorOrderId") Long cursorOrderId,
+                                              @Param("limit") Integer limit);
+
+    /**
+     * 查询用户在指定时间之后购买指定商品的第一笔订单（用于确认排队超时的秒杀请求是否已写入订单）
+     * 
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param since 起始下单时间
+     * @return 订单信息
+     */
+    @Select("SELECT o.* FROM orders o INNER JOIN order_item oi ON oi.order_id = o.order_id " +
+            "WHERE o.user_id = #{userId} AND o.deleted = 0 AND o.create_time >= #{since} AND oi.product_id = #{productId} " +
+            "ORDER BY o.create_time LIMIT 1")
+    Order findFirstByUserIdAndProductIdSince(@Param("userId") Long userId,
+                                             @Param("productId") Long productId,
+                                             @Param("since") LocalDateTime since);
+
     /**
      * 根据订单号查询订单
      * 
@@ -65,6 +109,29 @@ public interface OrderMapper extends BaseMapper<Order> {
     @Update("UPDATE orders SET status = #{status}, update_time = NOW() WHERE order_id = #{orderId}")
     int updateOrderStatus(@Param("orderId") Long orderId, @Param("status") Integer status);
 
+    /**
+     * 按原状态条件更新订单状态（状态流转），同时写入对应的时间字段
+     * 目标状态为1时记为已支付并写入支付时间，为2时写入发货时间，为3时写入确认收货时间
+     * 
+     * @param orderId 订单ID
+     * @param userId 用户ID（可选，不为空时同时校验订单归属）
+     * @param fromStatus 原状态
+     * @param toStatus 目标状态
+     * @return 影响行数（为0表示订单不存在或状态已变化）
+     */
+    @Update("<script>" +
+            "UPDATE orders SET status = #{toStatus}, update_time = NOW()" +
+            "<if test='toStatus == 1'>, payment_status = 1, payment_time = NOW()</if>" +
+            "<if test='toStatus == 2'>, ship_time = NOW()</if>" +
+            "<if test='toStatus == 3'>, confirm_time = NOW()</if>" +
+            " WHERE order_id = #{orderId} AND status = #{fromStatus} AND deleted = 0" +
+            "<if test='userId != null'> AND user_id = #{userId}</if>" +
+            "</script>")
+    int compareAndSetStatus(@Param("orderId") Long orderId,
+                            @Param("userId") Long userId,
+                            @Param("fromStatus") Integer fromStatus,
+                            @Param("toStatus") Integer toStatus);
+
     /**
      * 更新订单支付状态
      * 
@@ -98,6 +165,23 @@ public interface OrderMapper extends BaseMapper<Order> {
     @Update("UPDATE orders SET confirm_time = #{confirmTime}, update_time = NOW() WHERE order_id = #{orderId}")
     int updateConfirmTime(@Param("orderId") Long orderId, @Param("confirmTime") String confirmTime);
 
+    /**
+     * 批量插入订单（订单ID需预先分配）
+     * 
+     * @param orders 订单列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders (order_id, order_no, user_id, total_amount, pay_amount, shipping_fee, discount_amount, status, payment_method, payment_status, " +
+            "receiver_name, receiver_phone, receiver_address, remark, create_time, update_time) VALUES " +
+            "<foreach collection='orders' item='order' separator=','>" +
+            "(#{order.orderId}, #{order.orderNo}, #{order.userId}, #{order.totalAmount}, #{order.payAmount}, #{order.shippingFee}, #{order.discountAmount}, #{order.status}, " +
+            "#{order.paymentMethod}, #{order.paymentStatus}, #{order.receiverName}, #{order.receiverPhone}, #{order.receiverAddress}, #{order.remark}, " +
+            "#{order.createTime}, #{order.updateTime})" +
+            "</foreach>" +
+            "</script>")
+    int batchInsert(@Param("orders") List<Order> orders);
+
     /**
      * 检查订单号是否存在
      * 
@@ -125,4 +209,125 @@ public interface OrderMapper extends BaseMapper<Order> {
      */
     @Select("SELECT COUNT(1) FROM orders WHERE user_id = #{userId} AND deleted = 0")
     int countOrdersByUserId(@Param("userId") Long userId);
+
+    /**
+     * 按用户和状态分组统计订单数量
+     * 
+     * @param userIds 用户ID集合
+     * @return 统计结果（userId, status, orderCount）
+     */
+    @Select("<script>" +
+            "SELECT user_id AS userId, status, COUNT(1) AS orderCount FROM orders " +
+            "WHERE deleted = 0 AND user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach> " +
+            "GROUP BY user_id, status" +
+            "</script>")
+    List<Map<String, Object>> countOrdersGroupByUserIdAndStatus(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 锁定仍待付款且已超过支付截止时间的订单（按订单ID顺序加锁）
+     * 
+     * @param orderIds 订单ID列表
+     * @param deadline 截止时间（创建时间早于该时间的订单视为超时）
+     * @return 订单列表（仅包含订单ID和用户ID）
+     */
+    @Select("<script>" +
+            "SELECT order_id, user_id FROM orders WHERE order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>" +
+            "#{orderId}" +
+            "</foreach>" +
+            " AND status = 0 AND deleted = 0 AND create_time &lt;= #{deadline} ORDER BY order_id FOR UPDATE" +
+            "</script>")
+    List<Order> lockExpiredUnpaidOrders(@Param("orderIds") List<Long> orderIds, @Param("deadline") LocalDateTime deadline);
+
+    /**
+     * 批量取消待付款订单（只作用于仍待付款的订单）
+     * 
+     * @param orderIds 订单ID列表
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE orders SET status = 5, update_time = NOW() WHERE order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>" +
+            "#{orderId}" +
+            "</foreach>" +
+            " AND status = 0" +
+            "</script>")
+    int batchCancelUnpaidOrders(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 按（创建时间, 订单ID）游标查询创建时间早于指定时间仍待付款的订单
+     * 
+     * @param deadline 截止时间
+     * @param cursorTime 上一页最后一个订单的创建时间（为空时从头查询）
+     * @param cursorOrderId 上一页最后一个订单的订单ID
+     * @param limit 查询数量
+     * @return 订单列表（仅包含订单ID和创建时间）
+     */
+    @Select("<script>" +
+            "SELECT order_id, create_time FROM orders WHERE status = 0 AND deleted = 0 AND create_time &lt; #{deadline} " +
+            "<if test='cursorTime != null'> AND (create_time &gt; #{cursorTime} OR (create_time = #{cursorTime} AND order_id &gt; #{cursorOrderId})) </if>" +
+            "ORDER BY create_time, order_id LIMIT #{limit}" +
+            "</script>")
+    List<Order> findUnpaidOrdersBefore(@Param("deadline") LocalDateTime deadline,
+                                       @Param("cursorTime") LocalDateTime cursorTime,
+                                       @Param("cursorOrderId") Long cursorOrderId,
+                                       @Param("limit") Integer limit);
+
+    /**
+     * 锁定发货时间早于指定时间仍待收货的订单，跳过已被其他事务锁定的订单
+     * 
+     * @param cutoff 发货截止时间
+     * @param limit 查询数量
+     * @return 订单列表（仅包含订单ID和用户ID）
+     */
+    @Select("SELECT order_id, user_id FROM orders WHERE status = 2 AND deleted = 0 AND ship_time < #{cutoff} " +
+            "ORDER BY ship_time LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Order> lockShippedOrdersBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") Integer limit);
+
+    /**
+     * 批量确认收货（同时写入确认收货时间和状态，只作用于待收货订单）
+     * 
+     * @param orderIds 订单ID列表
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE orders SET status = 3, confirm_time = NOW(), update_time = NOW() WHERE order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>" +
+            "#{orderId}" +
+            "</foreach>" +
+            " AND status = 2" +
+            "</script>")
+    int batchConfirmOrders(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 锁定指定状态的订单（按订单ID顺序加锁）
+     * 
+     * @param orderIds 订单ID列表
+     * @param status 订单状态
+     * @return 订单列表（仅包含订单ID和用户ID）
+     */
+    @Select("<script>" +
+            "SELECT order_id, user_id FROM orders WHERE order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>" +
+            "#{orderId}" +
+            "</foreach>" +
+            " AND status = #{status} AND deleted = 0 ORDER BY order_id FOR UPDATE" +
+            "</script>")
+    List<Order> lockOrdersByStatus(@Param("orderIds") List<Long> orderIds, @Param("status") Integer status);
+
+    /**
+     * 批量发货（同时写入发货时间和状态，只作用于待发货订单）
+     * 
+     * @param orderIds 订单ID列表
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE orders SET status = 2, ship_time = NOW(), update_time = NOW() WHERE order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>" +
+            "#{orderId}" +
+            "</foreach>" +
+            " AND status = 1" +
+            "</script>")
+    int batchShipOrders(@Param("orderIds") List<Long> orderIds);
 }
@@ -3,13 +3,17 @@ package com.jingdong.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.jingdong.dto.ProductQueryDTO;
 import com.jingdong.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品Mapper接口
@@ -25,23 +29,82 @@ public interface ProductMapper extends BaseMapper<Product> {
      * 分页查询商品列表
      * 
      * @param page 分页对象
-     * @param categoryId 分类ID（可选）
-     * @param keyword 关键词（可选）
+     * @param query 查询条件（关键词、品牌、价格区间、推荐/热销/新品标识、排序）
+     * @param categoryIds 分类及其子孙分类ID（可选）
      * @param status 商品状态（可选）
      * @return 商品分页列表
      */
     @Select("<script>" +
             "SELECT * FROM product WHERE deleted = 0 " +
-            "<if test='categoryId != null'> AND category_id = #{categoryId} </if>" +
-            "<if test='keyword != null and keyword != \"\"'> AND (product_name LIKE CONCAT('%', #{keyword}, '%') OR subtitle LIKE CONCAT('%', #{keyword}, '%')) </if>" +
+            "<if test='categoryIds != null and categoryIds.size() > 0'> AND category_id IN " +
+            "<foreach collection='categoryIds' item='categoryId' open='(' separator=',' close=')'>#{categoryId}</foreach>" +
+            "</if>" +
+            "<if test='query.keyword != null and query.keyword != \"\"'> AND (product_name LIKE CONCAT('%', #{query.keyword}, '%') OR subtitle LIKE CONCAT('%', #{query.keyword}, '%')) </if>" +
             "<if test='status != null'> AND status = #{status} </if>" +
-            "ORDER BY sort_order ASC, create_time DESC" +
+            "<if test='query.brand != null and query.brand != \"\"'> AND brand = #{query.brand} </if>" +
+            "<if test='query.minPrice != null'> AND price &gt;= #{query.minPrice} </if>" +
+            "<if test='query.maxPrice != null'> AND price &lt;= #{query.maxPrice} </if>" +
+            "<if test='query.isRecommend != null'> AND is_recommend = #{query.isRecommend} </if>" +
+            "<if test='query.isHot != null'> AND is_hot = #{query.isHot} </if>" +
+            "<if test='query.isNew != null'> AND is_new = #{query.isNew} </if>" +
+            "ORDER BY " +
+            "<choose>" +
+            "<when test=\"query.sortField == 'price'\">price</when>" +
+            "<when test=\"query.sortField == 'sales'\">sales_count</when>" +
+            "<when test=\"query.sortField == 'time'\">create_time</when>" +
+            "</choose>" +
+            "<if test=\"query.sortField == 'price' or query.sortField == 'sales' or query.sortField == 'time'\">" +
+            "<choose><when test=\"query.sortOrder == 'asc'\"> ASC, </when><otherwise> DESC, </otherwise></choose>" +
+            "</if>" +
+            "sort_order ASC, create_time DESC" +
             "</script>")
     IPage<Product> findProductPage(Page<Product> page, 
-                                  @Param("categoryId") Long categoryId, 
-                                  @Param("keyword") String keyword, 
+                                  @Param("query") ProductQueryDTO query, 
+                                  @Param("categoryIds") Collection<Long> categoryIds, 
                                   @Param("status") Integer status);
 
+    /**
+     * 根据商品ID列表批量查询商品（用于下单时一次性加载商品快照）
+     * 
+     * @param productIds 商品ID列表
+     * @return 商品列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM product WHERE product_id IN " +
+            "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            "</script>")
+    List<Product> findByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * 批量查询商品库存（商品缓存不含库存，展示时单独读取）
+     * 
+     * @param productIds 商品ID列表
+     * @return 商品列表（仅包含商品ID和库存）
+     */
+    @Select("<script>" +
+            "SELECT product_id, stock FROM product WHERE product_id IN " +
+            "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            "</script>")
+    List<Product> findStocks(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * 批量查询商品销量（用于销量写回后同步搜索索引）
+     * 
+     * @param productIds 商品ID列表
+     * @return 商品列表（仅包含商品ID和销量）
+     */
+    @Select("<script>" +
+            "SELECT product_id, sales_count FROM product WHERE product_id IN " +
+            "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            "</script>")
+    List<Product> findSalesCounts(@Param("productIds") Collection<Long> productIds);
+
     /**
      * 查询推荐商品
      * 
@@ -79,6 +142,20 @@ public interface ProductMapper extends BaseMapper<Product> {
     @Select("SELECT * FROM product WHERE category_id = #{categoryId} AND status = 1 AND deleted = 0 ORDER BY sort_order ASC, create_time DESC LIMIT #{limit}")
     List<Product> findByCategoryId(@Param("categoryId") Long categoryId, @Param("limit") Integer limit);
 
+    /**
+     * 根据多个分类ID查询商品列表（用于包含子分类的查询）
+     * 
+     * @param categoryIds 分类ID集合
+     * @param limit 限制数量
+     * @return 商品列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM product WHERE category_id IN " +
+            "<foreach collection='categoryIds' item='categoryId' open='(' separator=',' close=')'>#{categoryId}</foreach>" +
+            " AND status = 1 AND deleted = 0 ORDER BY sort_order ASC, create_time DESC LIMIT #{limit}" +
+            "</script>")
+    List<Product> findByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds, @Param("limit") Integer limit);
+
     /**
      * 搜索商品（按关键词）
      * 
@@ -98,6 +175,26 @@ public interface ProductMapper extends BaseMapper<Product> {
     @Update("UPDATE product SET view_count = view_count + 1, update_time = NOW() WHERE product_id = #{productId}")
     int increaseViewCount(@Param("productId") Long productId);
 
+    /**
+     * 批量增加商品浏览量（一条CASE语句，按商品ID升序更新）
+     * 浏览量不属于商品信息变更，不更新update_time
+     * 
+     * @param counts 商品ID到增加浏览量的映射
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE product SET view_count = view_count + CASE product_id " +
+            "<foreach collection='counts' index='productId' item='count'>" +
+            "WHEN #{productId} THEN #{count} " +
+            "</foreach>" +
+            "END WHERE product_id IN " +
+            "<foreach collection='counts' index='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " ORDER BY product_id ASC" +
+            "</script>")
+    int batchIncreaseViewCount(@Param("counts") Map<Long, Long> counts);
+
     /**
      * 增加商品销量
      * 
@@ -108,24 +205,126 @@ public interface ProductMapper extends BaseMapper<Product> {
     @Update("UPDATE product SET sales_count = sales_count + #{quantity}, update_time = NOW() WHERE product_id = #{productId}")
     int increaseSalesCount(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
+    /**
+     * 批量调整商品销量（一条CASE语句，按商品ID升序更新，销量最低调整到0）
+     * 销量不属于商品信息变更，不更新update_time
+     * 
+     * @param deltas 商品ID到销量变化的映射
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE product SET sales_count = GREATEST(sales_count + CASE product_id " +
+            "<foreach collection='deltas' index='productId' item='delta'>" +
+            "WHEN #{productId} THEN #{delta} " +
+            "</foreach>" +
+            "END, 0) WHERE product_id IN " +
+            "<foreach collection='deltas' index='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " ORDER BY product_id ASC" +
+            "</script>")
+    int batchIncreaseSalesCount(@Param("deltas") Map<Long, Long> deltas);
+
     /**
      * 减少商品库存
+     * 库存不属于商品信息变更，不更新update_time
      * 
      * @param productId 商品ID
      * @param quantity 减少数量
      * @return 影响行数
      */
-    @Update("UPDATE product SET stock = stock - #{quantity}, update_time = NOW() WHERE product_id = #{productId} AND stock >= #{quantity}")
+    @Update("UPDATE product SET stock = stock - #{quantity} WHERE product_id = #{productId} AND stock >= #{quantity}")
     int decreaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
+    /**
+     * 按商品ID升序锁定一批商品的库存行（SELECT ... FOR UPDATE）
+     * 固定的加锁顺序可以避免并发多商品订单之间的死锁
+     * 
+     * @param productIds 商品ID列表
+     * @return 商品ID与库存列表
+     */
+    @Select("<script>" +
+            "SELECT product_id, stock FROM product WHERE product_id IN " +
+            "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " ORDER BY product_id ASC FOR UPDATE" +
+            "</script>")
+    List<Product> lockStockByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * 批量减少商品库存（一条CASE语句扣减整单，按商品ID升序更新）
+     * 库存不属于商品信息变更，不更新update_time
+     * 
+     * @param quantities 商品ID到扣减数量的映射
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE product SET stock = stock - CASE product_id " +
+            "<foreach collection='quantities' index='productId' item='quantity'>" +
+            "WHEN #{productId} THEN #{quantity} " +
+            "</foreach>" +
+            "END WHERE product_id IN " +
+            "<foreach collection='quantities' index='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " AND stock &gt;= CASE product_id " +
+            "<foreach collection='quantities' index='productId' item='quantity'>" +
+            "WHEN #{productId} THEN #{quantity} " +
+            "</foreach>" +
+            "END ORDER BY product_id ASC" +
+            "</script>")
+    int batchDecreaseStock(@Param("quantities") Map<Long, Integer> quantities);
+
+    /**
+     * 批量调整商品库存（一条CASE语句，按商品ID升序更新，库存最低调整到0）
+     * 库存不属于商品信息变更，不更新update_time
+     * 
+     * @param deltas 商品ID到库存变化量的映射（正数增加，负数减少）
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE product SET stock = GREATEST(stock + CASE product_id " +
+            "<foreach collection='deltas' index='productId' item='delta'>" +
+            "WHEN #{productId} THEN #{delta} " +
+            "</foreach>" +
+            "END, 0) WHERE product_id IN " +
+            "<foreach collection='deltas' index='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " ORDER BY product_id ASC" +
+            "</script>")
+    int batchAdjustStock(@Param("deltas") Map<Long, Integer> deltas);
+
+    /**
+     * 批量增加商品库存（一条CASE语句，按商品ID升序更新）
+     * 库存不属于商品信息变更，不更新update_time
+     * 
+     * @param quantities 商品ID到增加数量的映射
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE product SET stock = stock + CASE product_id " +
+            "<foreach collection='quantities' index='productId' item='quantity'>" +
+            "WHEN #{productId} THEN #{quantity} " +
+            "</foreach>" +
+            "END WHERE product_id IN " +
+            "<foreach collection='quantities' index='productId' open='(' separator=',' close=')'>" +
+            "#{productId}" +
+            "</foreach>" +
+            " ORDER BY product_id ASC" +
+            "</script>")
+    int batchIncreaseStock(@Param("quantities") Map<Long, Integer> quantities);
+
     /**
      * 增加商品库存
+     * 库存不属于商品信息变更，不更新update_time
      * 
      * @param productId 商品ID
      * @param quantity 增加数量
      * @return 影响行数
      */
-    @Update("UPDATE product SET stock = stock + #{quantity}, update_time = NOW() WHERE product_id = #{productId}")
+    @Update("UPDATE product SET stock = stock + #{quantity} WHERE product_id = #{productId}")
     int increaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
     /**
@@ -137,4 +336,33 @@ public interface ProductMapper extends BaseMapper<Product> {
      */
     @Select("SELECT COUNT(1) FROM product WHERE product_id = #{productId} AND stock >= #{quantity} AND status = 1 AND deleted = 0")
     int checkStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 按商品ID分批加载索引所需字段（包含已下架和已删除的商品）
+     * 
+     * @param afterProductId 上一批最后一个商品ID
+     * @param limit 批次大小
+     * @return 商品列表
+     */
+    @Select("SELECT product_id, product_name, subtitle, brand, category_id, price, sales_count, " +
+            "is_recommend, is_hot, is_new, sort_order, status, deleted, create_time, update_time " +
+            "FROM product WHERE product_id > #{afterProductId} ORDER BY product_id ASC LIMIT #{limit}")
+    List<Product> findForSearchIndex(@Param("afterProductId") Long afterProductId, @Param("limit") Integer limit);
+
+    /**
+     * 按(更新时间, 商品ID)游标查询更新时间不早于指定时间的商品（用于索引增量刷新）
+     * 
+     * @param updateTime 游标更新时间
+     * @param afterProductId 游标商品ID（同一更新时间内已处理到的商品ID）
+     * @param limit 批次大小
+     * @return 商品列表
+     */
+    @Select("SELECT product_id, product_name, subtitle, brand, category_id, price, sales_count, " +
+            "is_recommend, is_hot, is_new, sort_order, status, deleted, create_time, update_time " +
+            "FROM product WHERE update_time > #{updateTime} " +
+            "OR (update_time = #{updateTime} AND product_id > #{afterProductId}) " +
+            "ORDER BY update_time ASC, product_id ASC LIMIT #{limit}")
+    List<Product> findUpdatedSince(@Param("updateTime") LocalDateTime updateTime,
+                                   @Param("afterProductId") Long afterProductId,
+                                   @Param("limit") Integer limit);
 }
@@ -0,0 +1,118 @@
+package com.jingdong.service;
+
+import com.jingdong.entity.Cart;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 购物车存储服务接口
+ * 只负责购物车项的读写，商品校验和商品信息补全由购物车服务完成；
+ * 返回的购物车项不包含商品名称、价格等关联字段；按购物车ID的读写都只作用于属于该用户的购物车项
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface CartStorageService {
+
+    /**
+     * 获取用户的全部购物车项
+     * 
+     * @param userId 用户ID
+     * @return 购物车项列表，按加入时间倒序
+     */
+    List<Cart> listItems(Long userId);
+
+    /**
+     * 获取用户的购物车项
+     * 
+     * @param userId 用户ID
+     * @param cartId 购物车ID
+     * @return 购物车项，不存在或不属于该用户时返回null
+     */
+    Cart getItem(Long userId, Long cartId);
+
+    /**
+     * 批量获取用户的购物车项
+     * 
+     * @param userId 用户ID
+     * @param cartIds 购物车ID列表
+     * @return 存在且属于该用户的购物车项
+     */
+    List<Cart> getItems(Long userId, Collection<Long> cartIds);
+
+    /**
+     * 添加商品到购物车，已存在时累加数量
+     * 
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param quantity 添加数量
+     * @param maxQuantity 累加后允许的最大数量
+     * @return 是否添加成功，累加后超过最大数量时返回false且不做修改
+     */
+    boolean addItem(Long userId, Long productId, int quantity, int maxQuantity);
+
+    /**
+     * 更新购物车项数量
+     * 
+     * @param userId 用户ID
+     * @param cartId 购物车ID
+     * @param quantity 数量
+     * @return 是否更新成功，购物车项不存在或不属于该用户时返回false
+     */
+    boolean updateQuantity(Long userId, Long cartId, int quantity);
+
+    /**
+     * 更新购物车项选中状态
+     * 
+     * @param userId 用户ID
+     * @param cartId 购物车ID
+     * @param selected 选中状态
+     * @return 是否更新成功，购物车项不存在或不属于该用户时返回false
+     */
+    boolean updateSelected(Long userId, Long cartId, int selected);
+
+    /**
+     * 更新用户全部购物车项的选中状态
+     * 
+     * @param userId 用户ID
+     * @param selected 选中状态
+     * @return 更新数量
+     */
+    int updateAllSelected(Long userId, int selected);
+
+    /**
+     * 删除用户的购物车项
+     * 在事务中调用时，缓存实现在事务提交后才删除，返回值为请求删除的数量
+     * 
+     * @param userId 用户ID
+     * @param cartIds 购物车ID列表
+     * @return 删除数量，不存在或不属于该用户的购物车项不计入
+     */
+    int removeItems(Long userId, Collection<Long> cartIds);
+
+    /**
+     * 删除用户的购物车项，只有全部存在且属于该用户时才删除
+     * 
+     * @param userId 用户ID
+     * @param cartIds 购物车ID列表
+     * @return 是否已删除，有任一购物车项不存在或不属于该用户时返回false且不做修改
+     */
+    boolean removeAllItems(Long userId, Collection<Long> cartIds);
+
+    /**
+     * 清空用户购物车
+     * 
+     * @param userId 用户ID
+     * @return 删除数量
+     */
+    int clear(Long userId);
+
+    /**
+     * 统计用户购物车商品总数
+     * 
+     * @param userId 用户ID
+     * @return 各购物车项数量之和
+     */
+    int countQuantity(Long userId);
+}
@@ -0,0 +1,103 @@
+package com.jingdong.service;
+
+import com.jingdong.vo.CategoryVO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品分类服务接口
+ * 所有查询都基于内存中的分类树快照，分类变化时整体替换快照
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface CategoryService {
+
+    /**
+     * 获取顶级分类列表（不含子分类）
+     * 
+     * @return 顶级分类列表
+     */
+    List<CategoryVO> getCategoryList();
+
+    /**
+     * 获取完整分类树
+     * 
+     * @return 顶级分类列表（含各级子分类）
+     */
+    List<CategoryVO> getCategoryTree();
+
+    /**
+     * 获取导航栏分类
+     * 
+     * @return 导航栏分类列表
+     */
+    List<CategoryVO> getNavCategories();
+
+    /**
+     * 获取以指定分类为根的子树
+     * 
+     * @param categoryId 分类ID
+     * @return 分类（含各级子分类）
+     */
+    CategoryVO getSubtree(Long categoryId);
+
+    /**
+     * 获取从顶级分类到指定分类的路径（用于面包屑）
+     * 
+     * @param categoryId 分类ID
+     * @return 分类路径，顶级分类在前
+     */
+    List<CategoryVO> getCategoryPath(Long categoryId);
+
+    /**
+     * 获取分类及其所有子孙分类的ID
+     * 
+     * @param categoryId 分类ID
+     * @return 分类ID集合（包含自身）；分类不在快照中（已停用或不存在）时只包含自身
+     */
+    Set<Long> getDescendantIds(Long categoryId);
+
+    /**
+     * 获取分类名称
+     * 
+     * @param categoryId 分类ID
+     * @return 分类名称，分类不在快照中时返回null
+     */
+    String getCategoryName(Long categoryId);
+
+    /**
+     * 获取分类下的在售商品数量（包含所有子分类）
+     * 
+     * @param categoryId 分类ID
+     * @return 商品数量
+     */
+    int getProductCount(Long categoryId);
+
+    /**
+     * 商品上架、下架、删除或更换分类后增量调整分类商品数量
+     * 
+     * @param oldCategoryId 变化前所在分类（变化前不在售时为null）
+     * @param newCategoryId 变化后所在分类（变化后不在售时为null）
+     */
+    void onProductCategoryChanged(Long oldCategoryId, Long newCategoryId);
+
+    /**
+     * 用统计好的各分类直属商品数量重置分类商品数量（由搜索索引发布）
+     * 
+     * @param directCounts 分类ID到直属在售商品数量的映射
+     */
+    void resetProductCounts(Map<Long, Long> directCounts);
+
+    /**
+     * 重新加载分类树并替换快照
+     */
+    void refresh();
+
+    /**
+     * 重新统计分类商品数量，修正增量调整的偏差（优先使用搜索索引，索引不可用时按数据库统计）
+     */
+    void reconcileProductCounts();
+}
@@ -0,0 +1,22 @@
+package com.jingdong.service;
+
+import com.jingdong.vo.HomeFeedVO;
+
+/**
+ * 首页服务接口
+ * 聚合首页需要的分类和商品数据
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface HomeService {
+
+    /**
+     * 获取首页数据
+     * 各数据项并行获取，单项超时或失败时该项返回空列表，不影响其他数据
+     * 
+     * @param limit 每个商品楼层的商品数量
+     * @return 首页数据
+     */
+    HomeFeedVO getHomeFeed(Integer limit);
+}
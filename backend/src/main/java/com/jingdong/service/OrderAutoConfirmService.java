@@ -0,0 +1,23 @@
+package com.jingdong.service;
+
+/**
+ * 订单自动确认收货服务接口
+ * 发货超过指定天数仍未确认收货的订单由系统自动确认
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface OrderAutoConfirmService {
+
+    /**
+     * 定时触发自动确认，在独立线程中执行，上一次未结束时跳过本次
+     */
+    void triggerAutoConfirm();
+
+    /**
+     * 自动确认发货超期的订单
+     * 
+     * @return 本次确认的订单数量
+     */
+    int autoConfirmOrders();
+}
@@ -0,0 +1,46 @@
+package com.jingdong.service;
+
+import com.jingdong.vo.OrderCountVO;
+
+import java.util.Map;
+
+/**
+ * 订单数量统计服务接口
+ * 按用户维护各订单状态的数量，订单状态变化时增量更新
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface OrderCountService {
+
+    /**
+     * 获取用户各状态订单数量
+     * 
+     * @param userId 用户ID
+     * @return 订单数量统计
+     */
+    OrderCountVO getOrderCounts(Long userId);
+
+    /**
+     * 记录订单状态变化（在当前事务提交后生效）
+     * 
+     * @param userId 用户ID
+     * @param fromStatus 原状态（新建订单时为空）
+     * @param toStatus 新状态（删除订单时为空）
+     */
+    void changeStatus(Long userId, Integer fromStatus, Integer toStatus);
+
+    /**
+     * 批量记录订单状态变化（在当前事务提交后生效）
+     * 
+     * @param userOrderCounts 用户ID到变化订单数量的映射
+     * @param fromStatus 原状态（新建订单时为空）
+     * @param toStatus 新状态（删除订单时为空）
+     */
+    void changeStatus(Map<Long, Integer> userOrderCounts, Integer fromStatus, Integer toStatus);
+
+    /**
+     * 用数据库统计结果修正最近有变化的用户的订单数量
+     */
+    void reconcile();
+}
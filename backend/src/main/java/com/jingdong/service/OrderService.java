@@ -3,8 +3,13 @@ package com.jingdong.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.jingdong.dto.OrderCreateDTO;
 import com.jingdong.dto.OrderQueryDTO;
+import com.jingdong.vo.OrderBatchShipVO;
+import com.jingdong.vo.OrderCursorPageVO;
 import com.jingdong.vo.OrderVO;
 
+import java.io.InputStream;
+import java.util.List;
+
 /**
  * 订单服务接口
  * 定义订单相关的业务操作
@@ -32,6 +37,15 @@ public interface OrderService {
      */
     IPage<OrderVO> getOrderList(Long userId, OrderQueryDTO orderQueryDTO);
 
+    /**
+     * 游标分页查询用户订单列表
+     * 
+     * @param userId 用户ID
+     * @param orderQueryDTO 查询条件（使用其中的游标、每页大小和订单状态）
+     * @return 订单游标分页列表
+     */
+    OrderCursorPageVO getOrderListByCursor(Long userId, OrderQueryDTO orderQueryDTO);
+
     /**
      * 获取订单详情
      * 
@@ -85,10 +99,34 @@ public interface OrderService {
      */
     String shipOrder(Long orderId);
 
+    /**
+     * 批量发货
+     * 
+     * @param orderIds 订单ID列表
+     * @return 批量发货结果
+     */
+    OrderBatchShipVO batchShipOrders(List<Long> orderIds);
+
+    /**
+     * 从CSV批量发货（每行第一列为订单ID，逐行读取，按块发货）
+     * 
+     * @param inputStream CSV输入流
+     * @return 批量发货结果
+     */
+    OrderBatchShipVO batchShipOrders(InputStream inputStream);
+
     /**
      * 生成订单号
      * 
      * @return 订单号
      */
     String generateOrderNo();
+
+    /**
+     * 批量取消超时未支付的订单并归还库存
+     * 
+     * @param orderIds 已到期的订单ID列表
+     * @return 实际取消的订单ID列表（已支付或已取消的订单会被跳过）
+     */
+    List<Long> cancelExpiredOrders(List<Long> orderIds);
 }
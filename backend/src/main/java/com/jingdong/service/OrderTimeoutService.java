@@ -0,0 +1,34 @@
+package com.jingdong.service;
+
+import com.jingdong.entity.Order;
+
+import java.util.List;
+
+/**
+ * 订单超时服务接口
+ * 登记待付款订单的支付截止时间，到期未支付的订单自动取消
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface OrderTimeoutService {
+
+    /**
+     * 登记待付款订单（在当前事务提交后生效）
+     * 
+     * @param orders 新创建的订单列表
+     */
+    void schedule(List<Order> orders);
+
+    /**
+     * 移除订单的超时登记（订单已支付或已取消）
+     * 
+     * @param orderId 订单ID
+     */
+    void remove(Long orderId);
+
+    /**
+     * 取出已到期的订单并自动取消
+     */
+    void processExpiredOrders();
+}
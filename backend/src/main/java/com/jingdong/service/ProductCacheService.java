@@ -0,0 +1,38 @@
+package com.jingdong.service;
+
+import com.jingdong.entity.Product;
+
+import java.util.Collection;
+
+/**
+ * 商品缓存服务接口
+ * 商品详情的两级缓存：进程内本地缓存 + Redis缓存；缓存的商品不含库存，库存由库存服务单独读取
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface ProductCacheService {
+
+    /**
+     * 获取商品（依次查询本地缓存、Redis缓存、数据库）
+     * 
+     * @param productId 商品ID
+     * @return 商品信息，不存在时返回null
+     */
+    Product getProduct(Long productId);
+
+    /**
+     * 使商品缓存失效（同时通知其他节点清除本地缓存）
+     * 
+     * @param productId 商品ID
+     */
+    void evict(Long productId);
+
+    /**
+     * 在当前事务提交后使商品缓存失效（没有事务时立即失效）
+     * 修改商品信息时调用（库存变化不需要调用），避免事务提交前其他请求把旧数据重新加载进缓存
+     * 
+     * @param productIds 商品ID集合
+     */
+    void evictAfterCommit(Collection<Long> productIds);
+}
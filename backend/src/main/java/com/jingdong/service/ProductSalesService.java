@@ -0,0 +1,40 @@
+package com.jingdong.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品销量服务接口
+ * 支付时增量累加销量，汇总后批量写回数据库，并在内存中维护近7天/30天的销量排行
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface ProductSalesService {
+
+    /**
+     * 记录销量变化（在当前事务提交后生效）
+     * 
+     * @param quantities 商品ID到销量变化的映射（支付为正数，退款等撤销为负数）
+     */
+    void recordSales(Map<Long, Integer> quantities);
+
+    /**
+     * 获取滚动窗口内的销量排行
+     * 
+     * @param days 窗口天数（只支持7或30）
+     * @param limit 限制数量
+     * @return 按销量降序排列的商品ID列表
+     */
+    List<Long> getTopProductIds(int days, int limit);
+
+    /**
+     * 把累加的销量批量写回数据库，并刷新销量排行
+     */
+    void flush();
+
+    /**
+     * 从数据库重建滚动窗口内的每日销量
+     */
+    void rebuild();
+}
@@ -0,0 +1,98 @@
+package com.jingdong.service;
+
+import com.jingdong.dto.ProductQueryDTO;
+import com.jingdong.vo.ProductFacetVO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品搜索服务接口
+ * 基于进程内倒排索引的商品关键词搜索，以及基于位图索引的多条件筛选和分面统计
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface ProductSearchService {
+
+    /**
+     * 按筛选条件查询在售商品并统计各维度的商品数量
+     * 支持关键词、分类、品牌、价格区间、推荐/热销/新品标识及排序；
+     * 未指定排序字段时，有关键词按相关度和销量排序，否则按排序号和上架时间排序
+     * 
+     * @param productQueryDTO 查询条件（商品状态固定为上架）
+     * @param offset 起始位置
+     * @param limit 返回数量
+     * @return 查询结果；索引尚未就绪或关键词无法用索引处理时返回null，由调用方退回数据库查询
+     */
+    FacetResult query(ProductQueryDTO productQueryDTO, int offset, int limit);
+
+    /**
+     * 增量刷新索引（按商品更新时间）
+     */
+    void refresh();
+
+    /**
+     * 同步商品销量（销量写回数据库后按数据库中的最新值调用，重复同步不会重复累加）
+     * 
+     * @param salesCounts 商品ID到销量的映射
+     */
+    void updateSalesCounts(Map<Long, Long> salesCounts);
+
+    /**
+     * 按索引统计各分类直属的在售商品数量并重置分类商品数量
+     * 与增量刷新互斥，之后刷新到的变更只调整一次，不会与统计结果重复计数
+     * 
+     * @return 是否已发布；索引未启用或尚未就绪时返回false，由调用方按数据库统计
+     */
+    boolean publishCategoryCounts();
+
+    /**
+     * 搜索结果
+     */
+    class SearchResult {
+
+        /**
+         * 匹配的商品总数
+         */
+        private final int total;
+
+        /**
+         * 当前页商品ID（已排序）
+         */
+        private final List<Long> productIds;
+
+        public SearchResult(int total, List<Long> productIds) {
+            this.total = total;
+            this.productIds = productIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+    }
+
+    /**
+     * 筛选结果（附带分面统计，分类名称由调用方填充）
+     */
+    class FacetResult extends SearchResult {
+
+        /**
+         * 各维度商品数量
+         */
+        private final ProductFacetVO facets;
+
+        public FacetResult(int total, List<Long> productIds, ProductFacetVO facets) {
+            super(total, productIds);
+            this.facets = facets;
+        }
+
+        public ProductFacetVO getFacets() {
+            return facets;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.jingdong.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.jingdong.dto.ProductQueryDTO;
+import com.jingdong.vo.ProductFacetVO;
 import com.jingdong.vo.ProductVO;
 
 import java.util.List;
@@ -39,6 +40,14 @@ public interface ProductService {
      */
     IPage<ProductVO> searchProducts(ProductQueryDTO productQueryDTO);
 
+    /**
+     * 获取商品筛选面板（当前条件下各品牌、价格区间、分类的商品数量）
+     * 
+     * @param productQueryDTO 查询条件
+     * @return 筛选面板；索引尚未就绪时各维度为空
+     */
+    ProductFacetVO getProductFacets(ProductQueryDTO productQueryDTO);
+
     /**
      * 获取推荐商品
      * 
@@ -55,6 +64,15 @@ public interface ProductService {
      */
     List<ProductVO> getHotProducts(Integer limit);
 
+    /**
+     * 获取滚动窗口销量排行
+     * 
+     * @param days 窗口天数（7或30）
+     * @param limit 限制数量
+     * @return 按销量降序排列的商品列表
+     */
+    List<ProductVO> getSalesRanking(Integer days, Integer limit);
+
     /**
      * 获取新品商品
      * 
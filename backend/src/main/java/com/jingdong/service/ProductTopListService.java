@@ -0,0 +1,50 @@
+package com.jingdong.service;
+
+import com.jingdong.entity.Product;
+
+import java.util.List;
+
+/**
+ * 商品榜单服务接口
+ * 推荐、热销、新品榜单预先计算前N个商品保存在内存中，按需截取
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface ProductTopListService {
+
+    /**
+     * 获取榜单前limit个商品（超过榜单容量时按容量返回）
+     * 
+     * @param listType 榜单类型
+     * @param limit 限制数量
+     * @return 商品列表（只读）
+     */
+    List<Product> getTopList(ListType listType, int limit);
+
+    /**
+     * 刷新全部榜单
+     */
+    void refreshAll();
+
+    /**
+     * 榜单类型
+     */
+    enum ListType {
+
+        /**
+         * 推荐商品
+         */
+        RECOMMEND,
+
+        /**
+         * 热销商品
+         */
+        HOT,
+
+        /**
+         * 新品商品
+         */
+        NEW
+    }
+}
@@ -0,0 +1,31 @@
+package com.jingdong.service;
+
+/**
+ * 商品浏览量服务接口
+ * 浏览量先在内存中累加，再定时汇总批量写回数据库
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface ProductViewCountService {
+
+    /**
+     * 记录一次商品浏览
+     * 
+     * @param productId 商品ID
+     */
+    void increase(Long productId);
+
+    /**
+     * 获取尚未写回数据库的浏览量
+     * 
+     * @param productId 商品ID
+     * @return 待写回的浏览量
+     */
+    long getPendingCount(Long productId);
+
+    /**
+     * 把累加的浏览量批量写回数据库
+     */
+    void flush();
+}
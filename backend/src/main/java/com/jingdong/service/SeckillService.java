@@ -0,0 +1,52 @@
+package com.jingdong.service;
+
+import com.jingdong.dto.SeckillOrderDTO;
+import com.jingdong.vo.SeckillTicketVO;
+
+/**
+ * 秒杀服务接口
+ * 定义秒杀活动和秒杀下单相关的业务操作
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface SeckillService {
+
+    /**
+     * 开启秒杀活动
+     * 从商品库存中划出活动库存，之后的抢购只在Redis中扣减
+     * 
+     * @param productId 商品ID
+     * @param stock 活动库存
+     * @return 操作结果
+     */
+    String openActivity(Long productId, Integer stock);
+
+    /**
+     * 结束秒杀活动
+     * 未售出的活动库存归还到商品库存
+     * 
+     * @param productId 商品ID
+     * @return 操作结果
+     */
+    String closeActivity(Long productId);
+
+    /**
+     * 秒杀抢购
+     * 抢到名额后立即返回排队凭证，订单由后台异步批量写入
+     * 
+     * @param userId 用户ID
+     * @param seckillOrderDTO 秒杀下单信息
+     * @return 排队凭证
+     */
+    SeckillTicketVO submitOrder(Long userId, SeckillOrderDTO seckillOrderDTO);
+
+    /**
+     * 查询排队结果
+     * 
+     * @param userId 用户ID
+     * @param ticket 排队凭证
+     * @return 排队结果
+     */
+    SeckillTicketVO getTicket(Long userId, String ticket);
+}
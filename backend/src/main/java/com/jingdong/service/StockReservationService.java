@@ -0,0 +1,62 @@
+package com.jingdong.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存预占服务接口
+ * 在缓存中维护商品可售库存，下单时原子预占、取消时释放，
+ * 再异步把汇总后的库存变化写回数据库
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface StockReservationService {
+
+    /**
+     * 是否启用库存预占（未启用时下单直接扣减数据库库存）
+     * 
+     * @return 是否启用
+     */
+    boolean isEnabled();
+
+    /**
+     * 原子预占库存
+     * 任意一件商品库存不足则整单不预占；
+     * 在事务中调用时，事务回滚会自动归还预占的库存
+     * 
+     * @param quantities 商品ID到预占数量的映射
+     * @return 库存不足的商品ID列表（为空表示预占成功）
+     */
+    List<Long> reserve(Map<Long, Integer> quantities);
+
+    /**
+     * 释放预占的库存
+     * 在事务中调用时，事务提交后才真正释放
+     * 
+     * @param quantities 商品ID到释放数量的映射
+     */
+    void release(Map<Long, Integer> quantities);
+
+    /**
+     * 读取缓存中的可售库存（未启用或尚未预热的商品不包含在结果中）
+     * 
+     * @param productIds 商品ID集合
+     * @return 商品ID到可售库存的映射
+     */
+    Map<Long, Long> getAvailableStock(Collection<Long> productIds);
+
+    /**
+     * 使商品的可售库存缓存失效，下次预占时按“数据库库存 + 待写回变化量”重新预热
+     * 在预占服务之外修改数据库库存（补货、后台编辑、上下架）后调用；在事务中调用时，事务提交后才失效
+     * 
+     * @param productIds 商品ID集合
+     */
+    void invalidate(Collection<Long> productIds);
+
+    /**
+     * 把尚未写回的库存变化同步到数据库
+     */
+    void reconcile();
+}
@@ -0,0 +1,50 @@
+package com.jingdong.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存服务接口
+ * 定义商品库存批量扣减等操作
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public interface StockService {
+
+    /**
+     * 批量查询商品当前库存（用于展示）
+     * 启用库存预占时优先读取缓存中的可售库存，其余商品查询数据库
+     * 
+     * @param productIds 商品ID集合
+     * @return 商品ID到库存的映射（不存在的商品不包含在结果中）
+     */
+    Map<Long, Integer> getStocks(Collection<Long> productIds);
+
+    /**
+     * 批量扣减库存
+     * 整单一次扣减，任意一件商品库存不足则不做任何扣减
+     * 需要在调用方事务中执行，失败时由调用方回滚整单
+     * 
+     * @param quantities 商品ID到扣减数量的映射
+     * @return 库存不足的商品ID列表（为空表示全部扣减成功）
+     */
+    List<Long> deductStock(Map<Long, Integer> quantities);
+
+    /**
+     * 批量调整库存
+     * 按商品ID升序分批执行，每批一条语句，用于把异步汇总的库存变化写回数据库
+     * 
+     * @param deltas 商品ID到库存变化量的映射（正数增加，负数减少）
+     */
+    void adjustStock(Map<Long, Integer> deltas);
+
+    /**
+     * 批量恢复库存
+     * 按商品ID升序分批执行，每批一条语句，用于取消订单（单个或批量）后归还库存
+     * 
+     * @param quantities 商品ID到恢复数量的映射（调用方已按商品汇总）
+     */
+    void restoreStock(Map<Long, Integer> quantities);
+}
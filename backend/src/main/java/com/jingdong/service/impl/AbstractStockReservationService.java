@@ -0,0 +1,342 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.StockReservationService;
+import com.jingdong.service.StockService;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存预占服务基类
+ * 负责缓存预热、事务回滚补偿以及库存变化的异步写回，
+ * 具体的原子预占/释放以及待写回变化量的保存由子类基于Redis或进程内存实现。
+ * 待写回变化量分为“待写回”和“写回中”两部分，写回成功后递增写回代数；
+ * 预热时先记下写回代数再读数据库，只有期间没有写回完成才按“数据库库存 + 待写回 + 写回中的扣减”初始化，
+ * 写回中的扣减可能已经计入数据库库存，此时可售库存偏少但不会超卖；
+ * 可售库存缓存带固定过期时间（使用时不续期），过期后按上述方式重新预热，
+ * 因此在预占服务之外修改的数据库库存最迟一个过期周期后生效，也可以调用invalidate立即生效
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+public abstract class AbstractStockReservationService implements StockReservationService {
+
+    /**
+     * 预占结果：成功
+     */
+    protected static final int RESERVED = 0;
+
+    /**
+     * 预占结果：缓存中缺少部分商品的库存
+     */
+    protected static final int MISSING = 1;
+
+    /**
+     * 预占结果：部分商品库存不足
+     */
+    protected static final int INSUFFICIENT = 2;
+
+    /**
+     * 预热时遇到写回完成的最大重试次数
+     */
+    private static final int WARM_UP_ATTEMPTS = 3;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StockService stockService;
+
+    /**
+     * 是否启用库存预占
+     */
+    @Value("${mall.stock.reservation.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 可售库存缓存的过期秒数
+     */
+    @Value("${mall.stock.reservation.cache-ttl-seconds:600}")
+    protected long cacheTtlSeconds;
+
+    /**
+     * 是否启用库存预占
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 原子预占库存
+     */
+    @Override
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(quantities);
+
+        ReserveOutcome outcome = tryReserve(sortedQuantities);
+        if (outcome.getStatus() == MISSING) {
+            // 缓存中没有库存数据，从数据库预热后重试一次
+            warmUp(outcome.getProductIds());
+            outcome = tryReserve(sortedQuantities);
+        }
+        if (outcome.getStatus() != RESERVED) {
+            return outcome.getProductIds();
+        }
+
+        // 事务提交后记录待写回的扣减量，事务回滚则归还预占
+        TransactionUtils.afterCompletion(() -> recordDeltas(sortedQuantities, -1),
+                () -> doRelease(sortedQuantities));
+        return Collections.emptyList();
+    }
+
+    /**
+     * 释放预占的库存
+     */
+    @Override
+    public void release(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+        TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(quantities);
+        TransactionUtils.afterCompletion(() -> {
+            doRelease(sortedQuantities);
+            recordDeltas(sortedQuantities, 1);
+        }, null);
+    }
+
+    /**
+     * 读取缓存中的可售库存
+     */
+    @Override
+    public Map<Long, Long> getAvailableStock(Collection<Long> productIds) {
+        if (!enabled || productIds == null || productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return readStock(productIds);
+        } catch (Exception e) {
+            // 读取失败时由调用方查询数据库库存
+            log.warn("读取可售库存缓存失败，商品数量：{}", productIds.size(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 使商品的可售库存缓存失效
+     */
+    @Override
+    public void invalidate(Collection<Long> productIds) {
+        if (!enabled || productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = new ArrayList<>(productIds);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                evictStock(snapshot);
+            } catch (Exception e) {
+                // 失效失败时等待缓存自然过期
+                log.error("可售库存缓存失效失败，商品ID：{}", snapshot, e);
+            }
+        });
+    }
+
+    /**
+     * 定时把汇总后的库存变化写回数据库
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.stock.reservation.reconcile-interval-ms:2000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Long> deltas = takePendingDeltas();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> stockDeltas = new HashMap<>(deltas.size() * 2);
+        deltas.forEach((productId, delta) -> stockDeltas.put(productId, (int) (long) delta));
+        boolean written = false;
+        try {
+            stockService.adjustStock(stockDeltas);
+            written = true;
+            log.debug("库存变化写回数据库成功，商品数量：{}", deltas.size());
+        } catch (Exception e) {
+            // 写回失败，把变化量放回待写回等待下次重试
+            log.error("库存变化写回数据库失败，稍后重试", e);
+        }
+        try {
+            finishPendingDeltas(deltas, written);
+        } catch (Exception e) {
+            // 写回中的变化量过期后自动清除；写回失败时这部分变化量丢失，需要人工按日志核对
+            log.error("结束库存变化写回失败，已写入数据库：{}，变化量：{}", written, deltas, e);
+        }
+    }
+
+    /**
+     * 应用关闭前写回剩余的库存变化
+     */
+    @PreDestroy
+    public void shutdown() {
+        reconcile();
+    }
+
+    /**
+     * 原子预占库存（所有商品都充足才扣减）
+     * 
+     * @param quantities 按商品ID排序的预占数量
+     * @return 预占结果
+     */
+    protected abstract ReserveOutcome tryReserve(TreeMap<Long, Integer> quantities);
+
+    /**
+     * 获取当前写回代数（每次写回数据库成功后递增）
+     * 
+     * @return 写回代数
+     */
+    protected abstract long flushGeneration();
+
+    /**
+     * 初始化商品可售库存（已存在时不覆盖），过期时间为cacheTtlSeconds
+     * 可售库存 = 数据库库存 + 待写回变化量 + 写回中的扣减量
+     * 
+     * @param databaseStock 商品ID到数据库库存的映射
+     * @param generation 读取数据库库存前的写回代数
+     * @return 是否已初始化，期间有写回完成（数据库库存与变化量可能重复或遗漏）时返回false且不做修改
+     */
+    protected abstract boolean initStock(Map<Long, Long> databaseStock, long generation);
+
+    /**
+     * 累加待写回的库存变化量
+     * 
+     * @param deltas 商品ID到变化量的映射
+     */
+    protected abstract void addPendingDeltas(Map<Long, Long> deltas);
+
+    /**
+     * 取出全部待写回的变化量并转为写回中
+     * 
+     * @return 商品ID到变化量的映射
+     */
+    protected abstract Map<Long, Long> takePendingDeltas();
+
+    /**
+     * 结束写回：成功时清除写回中的变化量并递增写回代数，失败时把变化量放回待写回
+     * 
+     * @param deltas 本次写回的变化量
+     * @param written 是否已写入数据库
+     */
+    protected abstract void finishPendingDeltas(Map<Long, Long> deltas, boolean written);
+
+    /**
+     * 读取缓存中的可售库存（不存在或已过期的商品不包含在结果中）
+     * 
+     * @param productIds 商品ID集合
+     * @return 商品ID到可售库存的映射
+     */
+    protected abstract Map<Long, Long> readStock(Collection<Long> productIds);
+
+    /**
+     * 删除商品的可售库存缓存
+     * 
+     * @param productIds 商品ID集合
+     */
+    protected abstract void evictStock(Collection<Long> productIds);
+
+    /**
+     * 归还库存（缓存中不存在该商品时忽略，等待下次预热）
+     * 
+     * @param quantities 商品ID到归还数量的映射
+     */
+    protected abstract void doRelease(Map<Long, Integer> quantities);
+
+    /**
+     * 从数据库预热商品可售库存，期间有写回完成时重新读取
+     */
+    private void warmUp(List<Long> productIds) {
+        for (int attempt = 0; attempt < WARM_UP_ATTEMPTS; attempt++) {
+            long generation = flushGeneration();
+            List<Product> products = productMapper.findByProductIds(productIds);
+            Map<Long, Long> databaseStock = new HashMap<>(productIds.size() * 2);
+            for (Long productId : productIds) {
+                databaseStock.put(productId, 0L);
+            }
+            for (Product product : products) {
+                boolean onSale = !Integer.valueOf(1).equals(product.getDeleted())
+                        && !Integer.valueOf(0).equals(product.getStatus());
+                databaseStock.put(product.getProductId(), onSale ? (long) product.getStock() : 0L);
+            }
+            if (initStock(databaseStock, generation)) {
+                log.info("库存预占缓存预热完成，商品ID：{}", productIds);
+                return;
+            }
+        }
+        // 预热失败的商品本次按库存不足处理，下次下单时再预热
+        log.warn("库存预占缓存预热时写回频繁，放弃本次预热，商品ID：{}", productIds);
+    }
+
+    /**
+     * 累加待写回的库存变化量
+     */
+    private void recordDeltas(Map<Long, Integer> quantities, int sign) {
+        Map<Long, Long> deltas = new HashMap<>(quantities.size() * 2);
+        quantities.forEach((productId, quantity) -> deltas.put(productId, (long) sign * quantity));
+        try {
+            addPendingDeltas(deltas);
+        } catch (Exception e) {
+            // 变化量已生效于缓存，记录失败会使数据库库存偏离，需要人工按日志核对
+            log.error("记录待写回库存变化失败，变化量：{}", deltas, e);
+        }
+    }
+
+    /**
+     * 预占结果
+     */
+    protected static class ReserveOutcome {
+
+        /**
+         * 结果状态（RESERVED/MISSING/INSUFFICIENT）
+         */
+        private final int status;
+
+        /**
+         * 缺少缓存或库存不足的商品ID列表
+         */
+        private final List<Long> productIds;
+
+        protected ReserveOutcome(int status, List<Long> productIds) {
+            this.status = status;
+            this.productIds = productIds;
+        }
+
+        protected static ReserveOutcome reserved() {
+            return new ReserveOutcome(RESERVED, Collections.emptyList());
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+    }
+}
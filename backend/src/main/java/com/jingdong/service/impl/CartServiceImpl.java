@@ -6,23 +6,28 @@ import com.jingdong.dto.CartUpdateDTO;
 import com.jingdong.entity.Cart;
 import com.jingdong.entity.Product;
 import com.jingdong.exception.BusinessException;
-import com.jingdong.mapper.CartMapper;
 import com.jingdong.mapper.ProductMapper;
 import com.jingdong.service.CartService;
+import com.jingdong.service.CartStorageService;
+import com.jingdong.service.ProductCacheService;
+import com.jingdong.service.StockService;
 import com.jingdong.vo.CartVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 购物车服务实现类
- * 实现购物车相关的业务逻辑
+ * 实现购物车相关的业务逻辑，购物车项的读写委托给购物车存储服务（数据库或Redis），
+ * 商品名称、价格、库存等信息从商品缓存补全
  * 
  * @author huangtao
  * @date 2025-08-09
@@ -32,11 +37,17 @@ import java.util.stream.Collectors;
 public class CartServiceImpl implements CartService {
 
     @Autowired
-    private CartMapper cartMapper;
+    private CartStorageService cartStorageService;
 
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private StockService stockService;
+
     /**
      * 获取用户购物车列表
      */
@@ -44,16 +55,13 @@ public class CartServiceImpl implements CartService {
     public List<CartVO> getCartList(Long userId) {
         log.info("获取用户购物车列表，用户ID：{}", userId);
 
-        List<Cart> cartList = cartMapper.findCartWithProductByUserId(userId);
-        
-        return cartList.stream().map(this::convertToCartVO).collect(Collectors.toList());
+        return convertToCartVOs(cartStorageService.listItems(userId), false);
     }
 
     /**
      * 添加商品到购物车
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String addToCart(Long userId, CartAddDTO cartAddDTO) {
         log.info("添加商品到购物车，用户ID：{}，商品ID：{}", userId, cartAddDTO.getProductId());
 
@@ -69,30 +77,9 @@ public class CartServiceImpl implements CartService {
             throw new BusinessException("商品库存不足");
         }
 
-        // 检查购物车中是否已存在该商品
-        Cart existingCart = cartMapper.findByUserIdAndProductId(userId, cartAddDTO.getProductId());
-        
-        if (existingCart != null) {
-            // 如果已存在，更新数量
-            int newQuantity = existingCart.getQuantity() + cartAddDTO.getQuantity();
-            if (newQuantity > product.getStock()) {
-                throw new BusinessException("商品库存不足");
-            }
-            
-            existingCart.setQuantity(newQuantity);
-            existingCart.setUpdateTime(LocalDateTime.now());
-            cartMapper.updateById(existingCart);
-        } else {
-            // 如果不存在，新增购物车项
-            Cart cart = new Cart();
-            cart.setUserId(userId);
-            cart.setProductId(cartAddDTO.getProductId());
-            cart.setQuantity(cartAddDTO.getQuantity());
-            cart.setSelected(1); // 默认选中
-            cart.setCreateTime(LocalDateTime.now());
-            cart.setUpdateTime(LocalDateTime.now());
-            
-            cartMapper.insert(cart);
+        // 已存在时累加数量，累加后不能超过库存
+        if (!cartStorageService.addItem(userId, cartAddDTO.getProductId(), cartAddDTO.getQuantity(), product.getStock())) {
+            throw new BusinessException("商品库存不足");
         }
 
         log.info("商品添加到购物车成功，用户ID：{}，商品ID：{}", userId, cartAddDTO.getProductId());
@@ -103,18 +90,14 @@ public class CartServiceImpl implements CartService {
      * 更新购物车商品数量
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String updateCartItem(Long userId, CartUpdateDTO cartUpdateDTO) {
         log.info("更新购物车商品数量，用户ID：{}，购物车ID：{}", userId, cartUpdateDTO.getCartId());
 
-        // 检查购物车项是否存在且属于当前用户
-        Cart cart = cartMapper.selectById(cartUpdateDTO.getCartId());
-        if (cart == null || cart.getDeleted() == 1) {
+        // 查询购物车项（只查当前用户的）
+        Cart cart = cartStorageService.getItem(userId, cartUpdateDTO.getCartId());
+        if (cart == null) {
             throw new BusinessException("购物车项不存在");
         }
-        if (!cart.getUserId().equals(userId)) {
-            throw new BusinessException("无权限操作此购物车项");
-        }
 
         // 检查商品库存
         Product product = productMapper.selectById(cart.getProductId());
@@ -125,51 +108,33 @@ public class CartServiceImpl implements CartService {
             throw new BusinessException("商品库存不足");
         }
 
-        // 更新数量
-        int result = cartMapper.updateQuantity(cartUpdateDTO.getCartId(), cartUpdateDTO.getQuantity());
-        if (result > 0) {
-            log.info("购物车商品数量更新成功，购物车ID：{}", cartUpdateDTO.getCartId());
-            return "更新成功";
-        } else {
-            throw new BusinessException("更新失败");
+        // 按用户条件更新数量，期间购物车项被删除时不会更新
+        if (!cartStorageService.updateQuantity(userId, cartUpdateDTO.getCartId(), cartUpdateDTO.getQuantity())) {
+            throw new BusinessException("购物车项不存在");
         }
+        log.info("购物车商品数量更新成功，购物车ID：{}", cartUpdateDTO.getCartId());
+        return "更新成功";
     }
 
     /**
      * 删除购物车商品
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String removeCartItem(Long userId, Long cartId) {
         log.info("删除购物车商品，用户ID：{}，购物车ID：{}", userId, cartId);
 
-        // 检查购物车项是否存在且属于当前用户
-        Cart cart = cartMapper.selectById(cartId);
-        if (cart == null || cart.getDeleted() == 1) {
+        // 按用户条件删除，影响数量为0说明购物车项不存在或不属于当前用户
+        if (cartStorageService.removeItems(userId, Collections.singletonList(cartId)) == 0) {
             throw new BusinessException("购物车项不存在");
         }
-        if (!cart.getUserId().equals(userId)) {
-            throw new BusinessException("无权限操作此购物车项");
-        }
-
-        // 逻辑删除
-        cart.setDeleted(1);
-        cart.setUpdateTime(LocalDateTime.now());
-        int result = cartMapper.updateById(cart);
-        
-        if (result > 0) {
-            log.info("购物车商品删除成功，购物车ID：{}", cartId);
-            return "删除成功";
-        } else {
-            throw new BusinessException("删除失败");
-        }
+        log.info("购物车商品删除成功，购物车ID：{}", cartId);
+        return "删除成功";
     }
 
     /**
      * 批量删除购物车商品
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String removeCartItems(Long userId, List<Long> cartIds) {
         log.info("批量删除购物车商品，用户ID：{}，购物车ID列表：{}", userId, cartIds);
 
@@ -177,36 +142,32 @@ public class CartServiceImpl implements CartService {
             throw new BusinessException("购物车ID列表不能为空");
         }
 
-        // 检查所有购物车项是否属于当前用户
-        for (Long cartId : cartIds) {
-            Cart cart = cartMapper.selectById(cartId);
-            if (cart == null || cart.getDeleted() == 1) {
-                throw new BusinessException("购物车项不存在：" + cartId);
-            }
-            if (!cart.getUserId().equals(userId)) {
-                throw new BusinessException("无权限操作购物车项：" + cartId);
-            }
+        // 按用户条件一次删除，有任一购物车项不存在或不属于当前用户时整体不删除
+        Set<Long> distinctCartIds = new LinkedHashSet<>(cartIds);
+        if (cartStorageService.removeAllItems(userId, distinctCartIds)) {
+            log.info("批量删除购物车商品成功，删除数量：{}", distinctCartIds.size());
+            return "删除成功";
         }
 
-        // 批量删除
-        int result = cartMapper.deleteByCartIds(cartIds);
-        if (result > 0) {
-            log.info("批量删除购物车商品成功，删除数量：{}", result);
-            return "删除成功";
-        } else {
-            throw new BusinessException("删除失败");
+        // 删除失败时再批量查询，找出不存在或不属于当前用户的购物车项用于提示
+        Set<Long> missingCartIds = new LinkedHashSet<>(distinctCartIds);
+        for (Cart cart : cartStorageService.getItems(userId, distinctCartIds)) {
+            missingCartIds.remove(cart.getCartId());
         }
+        if (missingCartIds.isEmpty()) {
+            throw new BusinessException("删除失败，请重试");
+        }
+        throw new BusinessException("购物车项不存在：" + missingCartIds);
     }
 
     /**
      * 清空购物车
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String clearCart(Long userId) {
         log.info("清空购物车，用户ID：{}", userId);
 
-        int result = cartMapper.deleteByUserId(userId);
+        int result = cartStorageService.clear(userId);
         log.info("购物车清空成功，用户ID：{}，删除数量：{}", userId, result);
         return "清空成功";
     }
@@ -215,38 +176,25 @@ public class CartServiceImpl implements CartService {
      * 更新购物车商品选中状态
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String selectCartItem(Long userId, CartSelectDTO cartSelectDTO) {
         log.info("更新购物车商品选中状态，用户ID：{}，购物车ID：{}", userId, cartSelectDTO.getCartId());
 
-        // 检查购物车项是否存在且属于当前用户
-        Cart cart = cartMapper.selectById(cartSelectDTO.getCartId());
-        if (cart == null || cart.getDeleted() == 1) {
+        // 按用户条件更新，影响数量为0说明购物车项不存在或不属于当前用户
+        if (!cartStorageService.updateSelected(userId, cartSelectDTO.getCartId(), cartSelectDTO.getSelected())) {
             throw new BusinessException("购物车项不存在");
         }
-        if (!cart.getUserId().equals(userId)) {
-            throw new BusinessException("无权限操作此购物车项");
-        }
-
-        // 更新选中状态
-        int result = cartMapper.updateSelected(cartSelectDTO.getCartId(), cartSelectDTO.getSelected());
-        if (result > 0) {
-            log.info("购物车商品选中状态更新成功，购物车ID：{}", cartSelectDTO.getCartId());
-            return "更新成功";
-        } else {
-            throw new BusinessException("更新失败");
-        }
+        log.info("购物车商品选中状态更新成功，购物车ID：{}", cartSelectDTO.getCartId());
+        return "更新成功";
     }
 
     /**
      * 全选/取消全选购物车商品
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String selectAllCartItems(Long userId, Integer selected) {
         log.info("全选/取消全选购物车商品，用户ID：{}，选中状态：{}", userId, selected);
 
-        int result = cartMapper.updateSelectedByUserId(userId, selected);
+        int result = cartStorageService.updateAllSelected(userId, selected);
         log.info("购物车商品全选状态更新成功，用户ID：{}，更新数量：{}", userId, result);
         return "更新成功";
     }
@@ -256,7 +204,7 @@ public class CartServiceImpl implements CartService {
      */
     @Override
     public Integer getCartItemCount(Long userId) {
-        return cartMapper.countCartItemsByUserId(userId);
+        return cartStorageService.countQuantity(userId);
     }
 
     /**
@@ -266,9 +214,36 @@ public class CartServiceImpl implements CartService {
     public List<CartVO> getSelectedCartItems(Long userId) {
         log.info("获取用户选中的购物车项，用户ID：{}", userId);
 
-        List<Cart> cartList = cartMapper.findSelectedCartByUserId(userId);
-        
-        return cartList.stream().map(this::convertToCartVO).collect(Collectors.toList());
+        return convertToCartVOs(cartStorageService.listItems(userId), true);
+    }
+
+    /**
+     * 补全商品信息并转换为CartVO，跳过已删除或已下架的商品
+     */
+    private List<CartVO> convertToCartVOs(List<Cart> cartList, boolean selectedOnly) {
+        List<CartVO> cartVOList = new ArrayList<>(cartList.size());
+        // 商品缓存不含库存，整个购物车的库存一次读取
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Cart cart : cartList) {
+            productIds.add(cart.getProductId());
+        }
+        Map<Long, Integer> stocks = stockService.getStocks(productIds);
+        for (Cart cart : cartList) {
+            if (selectedOnly && !Integer.valueOf(1).equals(cart.getSelected())) {
+                continue;
+            }
+            Product product = productCacheService.getProduct(cart.getProductId());
+            if (product == null || Integer.valueOf(1).equals(product.getDeleted())
+                    || !Integer.valueOf(1).equals(product.getStatus())) {
+                continue;
+            }
+            cart.setProductName(product.getProductName());
+            cart.setPrice(product.getPrice());
+            cart.setMainImage(product.getMainImage());
+            cart.setStock(stocks.get(cart.getProductId()));
+            cartVOList.add(convertToCartVO(cart));
+        }
+        return cartVOList;
     }
 
     /**
@@ -0,0 +1,413 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Category;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.CategoryMapper;
+import com.jingdong.service.CategoryService;
+import com.jingdong.service.ProductSearchService;
+import com.jingdong.vo.CategoryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * 商品分类服务实现类
+ * 一次查询加载所有启用的分类，在内存中组装成不可变的分类树快照，并为每个节点预先计算子孙分类ID集合；
+ * 定时重新加载并原子替换快照（分类表很小，整表加载比判断是否变化更可靠），读取方始终看到完整一致的分类树；
+ * 分类商品数量以各分类的直属在售商品数为基准汇总到祖先分类，之后随商品上下架、删除、换分类增量调整（沿祖先链加减）；
+ * 增量调整来自搜索索引的刷新，因此启用索引时基准也由索引发布（与刷新互斥），避免数据库统计与索引刷新重复计数；
+ * 索引未就绪时按数据库GROUP BY统计
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class CategoryServiceImpl implements CategoryService {
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+
+    /**
+     * 商品搜索服务（延迟注入，避免与搜索服务循环依赖）
+     */
+    @Lazy
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * 当前分类树快照（首次访问时加载）
+     */
+    private final AtomicReference<CategoryTree> tree = new AtomicReference<>();
+
+    /**
+     * 各分类直属的在售商品数量（不含子分类），由countLock保护
+     */
+    private final Map<Long, Long> directCounts = new HashMap<>();
+
+    /**
+     * 商品数量锁：保证增量调整、重新统计和快照替换互斥，替换快照时不丢失调整
+     */
+    private final Object countLock = new Object();
+
+    /**
+     * 是否已从数据库统计过商品数量
+     */
+    private boolean countsLoaded;
+
+    /**
+     * 获取顶级分类列表
+     */
+    @Override
+    public List<CategoryVO> getCategoryList() {
+        return currentTree().roots.stream()
+                .map(node -> toCategoryVO(node, false))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取完整分类树
+     */
+    @Override
+    public List<CategoryVO> getCategoryTree() {
+        return currentTree().roots.stream()
+                .map(node -> toCategoryVO(node, true))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取导航栏分类
+     */
+    @Override
+    public List<CategoryVO> getNavCategories() {
+        return currentTree().navNodes.stream()
+                .map(node -> toCategoryVO(node, false))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取以指定分类为根的子树
+     */
+    @Override
+    public CategoryVO getSubtree(Long categoryId) {
+        CategoryNode node = currentTree().nodes.get(categoryId);
+        if (node == null) {
+            throw new BusinessException("分类不存在");
+        }
+        return toCategoryVO(node, true);
+    }
+
+    /**
+     * 获取从顶级分类到指定分类的路径
+     */
+    @Override
+    public List<CategoryVO> getCategoryPath(Long categoryId) {
+        CategoryTree currentTree = currentTree();
+        CategoryNode node = currentTree.nodes.get(categoryId);
+        if (node == null) {
+            throw new BusinessException("分类不存在");
+        }
+        LinkedList<CategoryVO> path = new LinkedList<>();
+        while (node != null) {
+            path.addFirst(toCategoryVO(node, false));
+            node = currentTree.nodes.get(node.category.getParentId());
+        }
+        return path;
+    }
+
+    /**
+     * 获取分类及其所有子孙分类的ID
+     */
+    @Override
+    public Set<Long> getDescendantIds(Long categoryId) {
+        CategoryNode node = currentTree().nodes.get(categoryId);
+        return node != null ? node.descendantIds : Collections.singleton(categoryId);
+    }
+
+    /**
+     * 获取分类名称
+     */
+    @Override
+    public String getCategoryName(Long categoryId) {
+        CategoryNode node = categoryId != null ? currentTree().nodes.get(categoryId) : null;
+        return node != null ? node.category.getCategoryName() : null;
+    }
+
+    /**
+     * 获取分类下的在售商品数量（包含所有子分类）
+     */
+    @Override
+    public int getProductCount(Long categoryId) {
+        CategoryNode node = currentTree().nodes.get(categoryId);
+        return node != null ? (int) node.productCount.get() : 0;
+    }
+
+    /**
+     * 增量调整分类商品数量
+     */
+    @Override
+    public void onProductCategoryChanged(Long oldCategoryId, Long newCategoryId) {
+        if (Objects.equals(oldCategoryId, newCategoryId)) {
+            return;
+        }
+        synchronized (countLock) {
+            if (!countsLoaded) {
+                // 尚未统计过，首次统计时会包含这次变化
+                return;
+            }
+            if (oldCategoryId != null) {
+                adjustProductCount(oldCategoryId, -1);
+            }
+            if (newCategoryId != null) {
+                adjustProductCount(newCategoryId, 1);
+            }
+        }
+    }
+
+    /**
+     * 定时重新加载分类树
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.category-tree.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        try {
+            load();
+        } catch (Exception e) {
+            log.error("刷新分类树失败", e);
+        }
+    }
+
+    /**
+     * 重置分类商品数量
+     */
+    @Override
+    public void resetProductCounts(Map<Long, Long> counts) {
+        synchronized (countLock) {
+            directCounts.clear();
+            directCounts.putAll(counts);
+            countsLoaded = true;
+            CategoryTree currentTree = tree.get();
+            if (currentTree != null) {
+                currentTree.rollup(directCounts);
+            }
+        }
+    }
+
+    /**
+     * 定时重新统计分类商品数量
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.category-tree.count-reconcile-interval-ms:3600000}",
+            initialDelayString = "${mall.category-tree.count-reconcile-interval-ms:3600000}")
+    public void reconcileProductCounts() {
+        try {
+            // 不能在持有countLock时调用搜索服务：发布时先取搜索服务的锁再取countLock
+            if (productSearchService.publishCategoryCounts()) {
+                return;
+            }
+            synchronized (countLock) {
+                loadDirectCounts();
+                CategoryTree currentTree = tree.get();
+                if (currentTree != null) {
+                    currentTree.rollup(directCounts);
+                }
+            }
+        } catch (Exception e) {
+            log.error("重新统计分类商品数量失败", e);
+        }
+    }
+
+    /**
+     * 获取当前快照，尚未加载时同步加载
+     */
+    private CategoryTree currentTree() {
+        CategoryTree currentTree = tree.get();
+        if (currentTree != null) {
+            return currentTree;
+        }
+        synchronized (this) {
+            if (tree.get() == null) {
+                load();
+            }
+            return tree.get();
+        }
+    }
+
+    /**
+     * 一次查询加载所有启用的分类，组装分类树并汇总商品数量后替换快照
+     */
+    private void load() {
+        List<Category> categories = categoryMapper.findAllActive();
+        CategoryTree newTree = new CategoryTree(categories);
+        synchronized (countLock) {
+            if (!countsLoaded) {
+                loadDirectCounts();
+            }
+            newTree.rollup(directCounts);
+            tree.set(newTree);
+        }
+        log.debug("加载分类树完成，分类数量：{}，顶级分类数量：{}", newTree.nodes.size(), newTree.roots.size());
+    }
+
+    /**
+     * 一次GROUP BY统计各分类直属的在售商品数量（调用方持有countLock）
+     */
+    private void loadDirectCounts() {
+        directCounts.clear();
+        for (Map<String, Object> row : categoryMapper.countOnSaleProductsGroupByCategory()) {
+            directCounts.put(((Number) row.get("categoryId")).longValue(), ((Number) row.get("productCount")).longValue());
+        }
+        countsLoaded = true;
+    }
+
+    /**
+     * 调整分类直属商品数量并同步到当前快照（调用方持有countLock）
+     */
+    private void adjustProductCount(Long categoryId, long delta) {
+        directCounts.merge(categoryId, delta, Long::sum);
+        CategoryTree currentTree = tree.get();
+        if (currentTree != null) {
+            currentTree.addProductCount(categoryId, delta);
+        }
+    }
+
+    /**
+     * 转换为分类VO（每次返回新对象，调用方修改不影响快照）
+     */
+    private CategoryVO toCategoryVO(CategoryNode node, boolean withChildren) {
+        CategoryVO categoryVO = new CategoryVO();
+        BeanUtils.copyProperties(node.category, categoryVO);
+        categoryVO.setProductCount((int) node.productCount.get());
+        if (withChildren) {
+            categoryVO.setChildren(node.children.stream()
+                    .map(child -> toCategoryVO(child, true))
+                    .collect(Collectors.toList()));
+        }
+        return categoryVO;
+    }
+
+    /**
+     * 分类树节点（构建完成后除商品数量外不再修改）
+     */
+    private static class CategoryNode {
+
+        private final Category category;
+
+        private final List<CategoryNode> children = new ArrayList<>();
+
+        /**
+         * 自身及所有子孙分类的ID
+         */
+        private Set<Long> descendantIds;
+
+        /**
+         * 在售商品数量（包含所有子分类）
+         */
+        private final AtomicLong productCount = new AtomicLong();
+
+        CategoryNode(Category category) {
+            this.category = category;
+        }
+    }
+
+    /**
+     * 分类树快照
+     */
+    private static class CategoryTree {
+
+        private final Map<Long, CategoryNode> nodes;
+
+        private final List<CategoryNode> roots;
+
+        private final List<CategoryNode> navNodes;
+
+        CategoryTree(List<Category> categories) {
+            Map<Long, CategoryNode> nodeMap = new HashMap<>(categories.size() * 2);
+            for (Category category : categories) {
+                nodeMap.put(category.getCategoryId(), new CategoryNode(category));
+            }
+
+            // 分类已按排序号有序，依次挂到父节点下；父分类已停用的分类不可见
+            List<CategoryNode> rootNodes = new ArrayList<>();
+            List<CategoryNode> navNodeList = new ArrayList<>();
+            for (Category category : categories) {
+                CategoryNode node = nodeMap.get(category.getCategoryId());
+                Long parentId = category.getParentId();
+                if (parentId == null || parentId == 0) {
+                    rootNodes.add(node);
+                } else if (nodeMap.containsKey(parentId)) {
+                    nodeMap.get(parentId).children.add(node);
+                }
+                if (Integer.valueOf(1).equals(category.getShowInNav())) {
+                    navNodeList.add(node);
+                }
+            }
+
+            // 从顶级分类向下遍历，只保留可达的节点，同时计算子孙分类ID集合
+            Map<Long, CategoryNode> reachable = new HashMap<>(nodeMap.size() * 2);
+            for (CategoryNode root : rootNodes) {
+                collect(root, reachable);
+            }
+            this.nodes = Collections.unmodifiableMap(reachable);
+            this.roots = Collections.unmodifiableList(rootNodes);
+            this.navNodes = Collections.unmodifiableList(navNodeList.stream()
+                    .filter(node -> reachable.containsKey(node.category.getCategoryId()))
+                    .collect(Collectors.toList()));
+        }
+
+        /**
+         * 按各分类直属商品数量汇总每个节点（含子孙分类）的商品数量
+         */
+        void rollup(Map<Long, Long> directCounts) {
+            for (CategoryNode node : nodes.values()) {
+                long count = 0;
+                for (Long descendantId : node.descendantIds) {
+                    count += directCounts.getOrDefault(descendantId, 0L);
+                }
+                node.productCount.set(count);
+            }
+        }
+
+        /**
+         * 沿祖先链调整商品数量
+         */
+        void addProductCount(Long categoryId, long delta) {
+            CategoryNode node = nodes.get(categoryId);
+            while (node != null) {
+                node.productCount.addAndGet(delta);
+                node = nodes.get(node.category.getParentId());
+            }
+        }
+
+        /**
+         * 后序遍历计算子孙分类ID集合
+         */
+        private static Set<Long> collect(CategoryNode node, Map<Long, CategoryNode> reachable) {
+            Long categoryId = node.category.getCategoryId();
+            reachable.put(categoryId, node);
+            Set<Long> descendantIds = new HashSet<>();
+            descendantIds.add(categoryId);
+            for (CategoryNode child : node.children) {
+                descendantIds.addAll(collect(child, reachable));
+            }
+            node.descendantIds = Collections.unmodifiableSet(descendantIds);
+            return descendantIds;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Cart;
+import com.jingdong.mapper.CartMapper;
+import com.jingdong.service.CartStorageService;
+import com.jingdong.utils.SegmentIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于数据库的购物车存储实现
+ * 每次读写直接访问cart表，按购物车ID的修改都带上用户ID条件，由影响行数判断购物车项是否存在且属于该用户
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mall.cart.storage", havingValue = "database", matchIfMissing = true)
+public class DatabaseCartStorageServiceImpl implements CartStorageService {
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private SegmentIdGenerator segmentIdGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 获取用户的全部购物车项
+     */
+    @Override
+    public List<Cart> listItems(Long userId) {
+        return cartMapper.findByUserId(userId);
+    }
+
+    /**
+     * 获取用户的购物车项
+     */
+    @Override
+    public Cart getItem(Long userId, Long cartId) {
+        List<Cart> carts = cartMapper.findByUserIdAndCartIds(userId, Collections.singletonList(cartId));
+        return carts.isEmpty() ? null : carts.get(0);
+    }
+
+    /**
+     * 批量获取用户的购物车项
+     */
+    @Override
+    public List<Cart> getItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return cartMapper.findByUserIdAndCartIds(userId, cartIds);
+    }
+
+    /**
+     * 添加商品到购物车
+     */
+    @Override
+    public boolean addItem(Long userId, Long productId, int quantity, int maxQuantity) {
+        Cart existingCart = cartMapper.findByUserIdAndProductId(userId, productId);
+        if (existingCart != null) {
+            int newQuantity = existingCart.getQuantity() + quantity;
+            if (newQuantity > maxQuantity) {
+                return false;
+            }
+            return cartMapper.updateQuantity(userId, existingCart.getCartId(), newQuantity) > 0;
+        }
+        if (quantity > maxQuantity) {
+            return false;
+        }
+
+        // 同一用户同一商品的唯一键包含已删除的记录，用upsert覆盖之前删除的购物车项
+        Cart cart = new Cart();
+        cart.setCartId(segmentIdGenerator.nextId(Cart.class));
+        cart.setUserId(userId);
+        cart.setProductId(productId);
+        cart.setQuantity(quantity);
+        cart.setSelected(1); // 默认选中
+        cart.setCreateTime(LocalDateTime.now());
+        return cartMapper.upsertBatch(Collections.singletonList(cart)) > 0;
+    }
+
+    /**
+     * 更新购物车项数量
+     */
+    @Override
+    public boolean updateQuantity(Long userId, Long cartId, int quantity) {
+        return cartMapper.updateQuantity(userId, cartId, quantity) > 0;
+    }
+
+    /**
+     * 更新购物车项选中状态
+     */
+    @Override
+    public boolean updateSelected(Long userId, Long cartId, int selected) {
+        return cartMapper.updateSelected(userId, cartId, selected) > 0;
+    }
+
+    /**
+     * 更新用户全部购物车项的选中状态
+     */
+    @Override
+    public int updateAllSelected(Long userId, int selected) {
+        return cartMapper.updateSelectedByUserId(userId, selected);
+    }
+
+    /**
+     * 删除用户的购物车项
+     */
+    @Override
+    public int removeItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return 0;
+        }
+        return cartMapper.deleteByUserIdAndCartIds(userId, cartIds);
+    }
+
+    /**
+     * 删除用户的购物车项，只有全部存在且属于该用户时才删除
+     * 一条条件更新完成删除，影响行数少于请求数量时回滚
+     */
+    @Override
+    public boolean removeAllItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return true;
+        }
+        Set<Long> distinctCartIds = new LinkedHashSet<>(cartIds);
+        Boolean removed = transactionTemplate.execute(status -> {
+            if (cartMapper.deleteByUserIdAndCartIds(userId, distinctCartIds) == distinctCartIds.size()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+        return Boolean.TRUE.equals(removed);
+    }
+
+    /**
+     * 清空用户购物车
+     */
+    @Override
+    public int clear(Long userId) {
+        return cartMapper.deleteByUserId(userId);
+    }
+
+    /**
+     * 统计用户购物车商品总数
+     */
+    @Override
+    public int countQuantity(Long userId) {
+        Integer count = cartMapper.countCartItemsByUserId(userId);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,182 @@
+package com.jingdong.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jingdong.service.CategoryService;
+import com.jingdong.service.HomeService;
+import com.jingdong.service.ProductService;
+import com.jingdong.vo.CategoryVO;
+import com.jingdong.vo.HomeFeedVO;
+import com.jingdong.vo.ProductVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 首页服务实现类
+ * 分类、推荐、热销、新品各数据项提交到有界线程池并行获取，每项有独立的超时时间，
+ * 超时、失败或线程池已满时该项降级为空列表并记录在failedSources中；
+ * 完整的结果按楼层商品数量缓存一小段时间，缓存未命中时同一时刻的并发请求只聚合一次
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class HomeServiceImpl implements HomeService {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * 聚合线程数
+     */
+    @Value("${mall.home-feed.pool-size:8}")
+    private int poolSize;
+
+    /**
+     * 聚合任务队列长度
+     */
+    @Value("${mall.home-feed.queue-capacity:200}")
+    private int queueCapacity;
+
+    /**
+     * 单个数据项的超时时间（毫秒）
+     */
+    @Value("${mall.home-feed.source-timeout-ms:300}")
+    private long sourceTimeoutMs;
+
+    /**
+     * 首页数据缓存时间（毫秒）
+     */
+    @Value("${mall.home-feed.cache-ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    /**
+     * 聚合线程池
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 首页数据缓存（楼层商品数量 -> 首页数据）
+     */
+    private Cache<Integer, HomeFeedVO> feedCache;
+
+    /**
+     * 初始化线程池和缓存
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "home-feed-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        feedCache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtlMs, TimeUnit.MILLISECONDS)
+                .maximumSize(32)
+                .build();
+    }
+
+    /**
+     * 关闭线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取首页数据
+     */
+    @Override
+    public HomeFeedVO getHomeFeed(Integer limit) {
+        HomeFeedVO homeFeed = feedCache.get(limit, this::loadHomeFeed);
+        if (!homeFeed.getFailedSources().isEmpty()) {
+            // 不完整的结果不缓存，下次请求重新获取
+            feedCache.asMap().remove(limit, homeFeed);
+        }
+        return homeFeed;
+    }
+
+    /**
+     * 并行获取各数据项
+     */
+    private HomeFeedVO loadHomeFeed(Integer limit) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sourceTimeoutMs);
+        Future<List<CategoryVO>> categories = submit(categoryService::getCategoryList);
+        Future<List<CategoryVO>> navCategories = submit(categoryService::getNavCategories);
+        Future<List<ProductVO>> recommendProducts = submit(() -> productService.getRecommendProducts(limit));
+        Future<List<ProductVO>> hotProducts = submit(() -> productService.getHotProducts(limit));
+        Future<List<ProductVO>> newProducts = submit(() -> productService.getNewProducts(limit));
+
+        List<String> failedSources = new ArrayList<>();
+        HomeFeedVO homeFeed = new HomeFeedVO();
+        homeFeed.setCategories(await("categories", categories, deadline, failedSources));
+        homeFeed.setNavCategories(await("navCategories", navCategories, deadline, failedSources));
+        homeFeed.setRecommendProducts(await("recommendProducts", recommendProducts, deadline, failedSources));
+        homeFeed.setHotProducts(await("hotProducts", hotProducts, deadline, failedSources));
+        homeFeed.setNewProducts(await("newProducts", newProducts, deadline, failedSources));
+        homeFeed.setFailedSources(failedSources);
+        return homeFeed;
+    }
+
+    /**
+     * 提交数据项任务，线程池已满时返回null
+     */
+    private <T> Future<List<T>> submit(Callable<List<T>> source) {
+        try {
+            return executor.submit(source);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在截止时间前等待数据项结果，超时或失败时返回空列表并记录数据项名称
+     */
+    private <T> List<T> await(String source, Future<List<T>> future, long deadline, List<String> failedSources) {
+        if (future == null) {
+            log.warn("首页数据项未执行，聚合线程池已满：{}", source);
+            failedSources.add(source);
+            return Collections.emptyList();
+        }
+        try {
+            List<T> result = future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            return result != null ? result : Collections.emptyList();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("首页数据项获取超时：{}", source);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            log.warn("等待首页数据项被中断：{}", source);
+        } catch (ExecutionException e) {
+            log.error("首页数据项获取失败：{}", source, e.getCause());
+        }
+        failedSources.add(source);
+        return Collections.emptyList();
+    }
+}
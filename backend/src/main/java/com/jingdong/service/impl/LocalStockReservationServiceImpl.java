@@ -0,0 +1,181 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.utils.DeltaAccumulator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内库存预占服务实现
+ * 用内存代替Redis保存可售库存和待写回变化量，行为与Redis实现一致，用于测试和单机环境
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Service
+@ConditionalOnProperty(name = "mall.stock.reservation.store", havingValue = "local")
+public class LocalStockReservationServiceImpl extends AbstractStockReservationService {
+
+    /**
+     * 商品可售库存（商品ID -> 可售库存）
+     */
+    private final Map<Long, Long> availableStock = new ConcurrentHashMap<>();
+
+    /**
+     * 可售库存的过期时间（商品ID -> 过期时间毫秒）
+     */
+    private final Map<Long, Long> expireTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 待写回的库存变化量
+     */
+    private final DeltaAccumulator pendingDeltas = new DeltaAccumulator();
+
+    /**
+     * 写回中的库存变化量
+     */
+    private final DeltaAccumulator flushingDeltas = new DeltaAccumulator();
+
+    /**
+     * 写回代数
+     */
+    private long generation;
+
+    /**
+     * 原子预占库存
+     */
+    @Override
+    protected synchronized ReserveOutcome tryReserve(TreeMap<Long, Integer> quantities) {
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long productId : quantities.keySet()) {
+            if (expireTimes.getOrDefault(productId, 0L) <= now) {
+                availableStock.remove(productId);
+                expireTimes.remove(productId);
+            }
+            if (!availableStock.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            return new ReserveOutcome(MISSING, missing);
+        }
+
+        List<Long> insufficient = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (availableStock.get(entry.getKey()) < entry.getValue()) {
+                insufficient.add(entry.getKey());
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            return new ReserveOutcome(INSUFFICIENT, insufficient);
+        }
+
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            availableStock.merge(entry.getKey(), (long) -entry.getValue(), Long::sum);
+        }
+        return ReserveOutcome.reserved();
+    }
+
+    /**
+     * 获取当前写回代数
+     */
+    @Override
+    protected synchronized long flushGeneration() {
+        return generation;
+    }
+
+    /**
+     * 初始化商品可售库存
+     */
+    @Override
+    protected synchronized boolean initStock(Map<Long, Long> databaseStock, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        long expireTime = System.currentTimeMillis() + cacheTtlSeconds * 1000;
+        for (Map.Entry<Long, Long> entry : databaseStock.entrySet()) {
+            Long productId = entry.getKey();
+            long available = entry.getValue() + pendingDeltas.get(productId) + Math.min(flushingDeltas.get(productId), 0);
+            if (availableStock.putIfAbsent(productId, Math.max(available, 0)) == null) {
+                expireTimes.put(productId, expireTime);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取缓存中的可售库存
+     */
+    @Override
+    protected synchronized Map<Long, Long> readStock(Collection<Long> productIds) {
+        Map<Long, Long> stocks = new HashMap<>(productIds.size() * 2);
+        long now = System.currentTimeMillis();
+        for (Long productId : productIds) {
+            Long available = availableStock.get(productId);
+            if (available != null && expireTimes.getOrDefault(productId, 0L) > now) {
+                stocks.put(productId, available);
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 删除商品的可售库存缓存
+     */
+    @Override
+    protected synchronized void evictStock(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            availableStock.remove(productId);
+            expireTimes.remove(productId);
+        }
+    }
+
+    /**
+     * 归还库存
+     */
+    @Override
+    protected synchronized void doRelease(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            availableStock.computeIfPresent(entry.getKey(), (productId, stock) -> stock + entry.getValue());
+        }
+    }
+
+    /**
+     * 累加待写回的库存变化量
+     */
+    @Override
+    protected synchronized void addPendingDeltas(Map<Long, Long> deltas) {
+        pendingDeltas.addAll(deltas);
+    }
+
+    /**
+     * 取出全部待写回的变化量并转为写回中
+     */
+    @Override
+    protected synchronized Map<Long, Long> takePendingDeltas() {
+        Map<Long, Long> deltas = pendingDeltas.drain();
+        flushingDeltas.addAll(deltas);
+        return deltas;
+    }
+
+    /**
+     * 结束写回
+     */
+    @Override
+    protected synchronized void finishPendingDeltas(Map<Long, Long> deltas, boolean written) {
+        deltas.forEach((productId, delta) -> flushingDeltas.add(productId, -delta));
+        if (written) {
+            generation++;
+        } else {
+            pendingDeltas.addAll(deltas);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Order;
+import com.jingdong.mapper.OrderMapper;
+import com.jingdong.service.OrderAutoConfirmService;
+import com.jingdong.service.OrderCountService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 订单自动确认收货服务实现类
+ * 按（status, ship_time）索引分块领取超期订单，每块一条UPDATE同时写入确认时间和状态；
+ * 领取时跳过被其他事务锁定的订单，并按配置的速率限流，避免与线上下单争抢数据库；
+ * 限流休眠在独立线程中进行，不占用共享的定时任务线程池，执行结果通过Micrometer指标暴露
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class OrderAutoConfirmServiceImpl implements OrderAutoConfirmService {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderCountService orderCountService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 是否启用自动确认收货
+     */
+    @Value("${mall.order-auto-confirm.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 发货后自动确认收货的天数
+     */
+    @Value("${mall.order-auto-confirm.days:10}")
+    private long confirmDays;
+
+    /**
+     * 每块确认的订单数量
+     */
+    @Value("${mall.order-auto-confirm.chunk-size:200}")
+    private int chunkSize;
+
+    /**
+     * 每秒最多确认的订单数量
+     */
+    @Value("${mall.order-auto-confirm.max-rows-per-second:500}")
+    private int maxRowsPerSecond;
+
+    /**
+     * 单次任务最多确认的订单数量，剩余的留给下次任务
+     */
+    @Value("${mall.order-auto-confirm.max-rows-per-run:50000}")
+    private int maxRowsPerRun;
+
+    /**
+     * 自动确认执行线程（限流休眠只阻塞该线程）
+     */
+    private final ExecutorService confirmExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-auto-confirm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 是否有任务正在执行
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 累计自动确认的订单数量
+     */
+    private Counter confirmedCounter;
+
+    /**
+     * 确认失败的分块数量
+     */
+    private Counter failureCounter;
+
+    /**
+     * 因上一次未结束而跳过的触发次数
+     */
+    private Counter skippedCounter;
+
+    /**
+     * 每次任务的执行耗时
+     */
+    private Timer runTimer;
+
+    /**
+     * 注册监控指标
+     */
+    @PostConstruct
+    public void initMetrics() {
+        confirmedCounter = Counter.builder("mall.order.auto.confirm.orders")
+                .description("自动确认收货的订单数量")
+                .register(meterRegistry);
+        failureCounter = Counter.builder("mall.order.auto.confirm.failures")
+                .description("自动确认收货失败的分块数量")
+                .register(meterRegistry);
+        skippedCounter = Counter.builder("mall.order.auto.confirm.skipped")
+                .description("上一次未结束而跳过的触发次数")
+                .register(meterRegistry);
+        runTimer = Timer.builder("mall.order.auto.confirm.duration")
+                .description("自动确认收货任务耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 关闭执行线程，中断限流休眠
+     */
+    @PreDestroy
+    public void shutdown() {
+        confirmExecutor.shutdownNow();
+    }
+
+    /**
+     * 定时触发自动确认，交给独立线程执行后立即返回
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.order-auto-confirm.interval-ms:600000}",
+            initialDelayString = "${mall.order-auto-confirm.initial-delay-ms:120000}")
+    public void triggerAutoConfirm() {
+        if (!enabled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            skippedCounter.increment();
+            log.warn("上一次自动确认收货尚未结束，跳过本次");
+            return;
+        }
+        try {
+            confirmExecutor.execute(() -> {
+                try {
+                    autoConfirmOrders();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            log.warn("提交自动确认收货任务失败", e);
+        }
+    }
+
+    /**
+     * 自动确认发货超期的订单
+     */
+    @Override
+    public int autoConfirmOrders() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(confirmDays);
+        long startTime = System.currentTimeMillis();
+        int confirmed = 0;
+        int chunks = 0;
+
+        while (confirmed < maxRowsPerRun) {
+            int limit = Math.min(chunkSize, maxRowsPerRun - confirmed);
+            int count;
+            try {
+                count = confirmChunk(cutoff, limit);
+            } catch (Exception e) {
+                failureCounter.increment();
+                log.error("自动确认收货失败，本次已确认：{}", confirmed, e);
+                break;
+            }
+            if (count == 0) {
+                break;
+            }
+            confirmed += count;
+            chunks++;
+            confirmedCounter.increment(count);
+            if (count < limit) {
+                break;
+            }
+            if (!throttle(startTime, confirmed)) {
+                break;
+            }
+        }
+
+        long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+        runTimer.record(elapsed, TimeUnit.MILLISECONDS);
+        if (confirmed > 0) {
+            log.info("自动确认收货完成，订单数量：{}，分块数量：{}，耗时：{}ms，吞吐：{}单/秒",
+                    confirmed, chunks, elapsed, confirmed * 1000L / elapsed);
+        }
+        return confirmed;
+    }
+
+    /**
+     * 在一个事务内领取并确认一块订单
+     * 
+     * @return 确认的订单数量
+     */
+    private int confirmChunk(LocalDateTime cutoff, int limit) {
+        Integer count = transactionTemplate.execute(status -> {
+            List<Order> orders = orderMapper.lockShippedOrdersBefore(cutoff, limit);
+            if (orders.isEmpty()) {
+                return 0;
+            }
+            List<Long> orderIds = orders.stream()
+                    .map(Order::getOrderId)
+                    .collect(Collectors.toList());
+            int result = orderMapper.batchConfirmOrders(orderIds);
+            if (result != orderIds.size()) {
+                throw new IllegalStateException("自动确认收货影响行数不一致，期望：" + orderIds.size() + "，实际：" + result);
+            }
+            Map<Long, Integer> userOrderCounts = new HashMap<>();
+            for (Order order : orders) {
+                userOrderCounts.merge(order.getUserId(), 1, Integer::sum);
+            }
+            orderCountService.changeStatus(userOrderCounts, 2, 3);
+            return result;
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 按目标速率限流：处理得比目标快时休眠补足
+     * 
+     * @return 是否继续（线程被中断时返回false）
+     */
+    private boolean throttle(long startTime, int confirmed) {
+        if (maxRowsPerSecond <= 0) {
+            return true;
+        }
+        long expectedElapsed = confirmed * 1000L / maxRowsPerSecond;
+        long sleepMillis = expectedElapsed - (System.currentTimeMillis() - startTime);
+        if (sleepMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(sleepMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.mapper.OrderMapper;
+import com.jingdong.service.OrderCountService;
+import com.jingdong.vo.OrderCountVO;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 订单数量统计服务实现类
+ * 每个用户的各状态订单数量保存为一个Redis哈希（字段为订单状态），
+ * 读取只需一次HGETALL；订单状态变化在事务提交后通过HINCRBY增量更新，
+ * 同时把用户记入待校对集合，由定时任务按数据库统计结果修正偏差
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class OrderCountServiceImpl implements OrderCountService {
+
+    /**
+     * 订单数量键前缀
+     */
+    private static final String COUNT_KEY_PREFIX = "order:count:";
+
+    /**
+     * 待校对用户集合键
+     */
+    private static final String DIRTY_KEY = "order:count:dirty";
+
+    /**
+     * 订单状态：0-待付款，1-待发货，2-待收货，3-待评价，4-已完成，5-已取消，6-已退款
+     */
+    private static final int MAX_STATUS = 6;
+
+    /**
+     * 增量脚本：KEYS为各用户的计数键，最后一个为待校对集合；
+     * ARGV依次为原状态、新状态，以及各用户的变化订单数和用户ID。
+     * 只在计数已加载时调整，未加载的等下次读取时从数据库统计；无论是否调整都把用户记入待校对集合
+     */
+    private static final DefaultRedisScript<Long> CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "local n = #KEYS - 1 " +
+            "for i = 1, n do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+            "    local count = tonumber(ARGV[2 + i]) " +
+            "    if ARGV[1] ~= '' then redis.call('HINCRBY', KEYS[i], ARGV[1], -count) end " +
+            "    if ARGV[2] ~= '' then redis.call('HINCRBY', KEYS[i], ARGV[2], count) end " +
+            "  end " +
+            "  redis.call('SADD', KEYS[#KEYS], ARGV[2 + n + i]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 加载脚本：ARGV[1]为1时覆盖已有计数（校对），为0时只在不存在时写入（冷加载）；
+     * ARGV[2]为过期秒数，之后依次为各状态的数量
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "local exists = redis.call('EXISTS', KEYS[1]) " +
+            "if ARGV[1] == '0' and exists == 1 then return 0 end " +
+            "if ARGV[1] == '1' and exists == 0 then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 3, #ARGV do redis.call('HSET', KEYS[1], tostring(i - 3), ARGV[i]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 计数过期时间（小时），不活跃用户的计数自动淘汰
+     */
+    @Value("${mall.order-count.ttl-hours:168}")
+    private long ttlHours;
+
+    /**
+     * 每次校对的用户数量
+     */
+    @Value("${mall.order-count.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    /**
+     * 获取用户各状态订单数量
+     */
+    @Override
+    public OrderCountVO getOrderCounts(Long userId) {
+        long[] counts;
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(COUNT_KEY_PREFIX + userId);
+            if (!entries.isEmpty()) {
+                counts = new long[MAX_STATUS + 1];
+                for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                    int status = Integer.parseInt(entry.getKey().toString());
+                    if (status >= 0 && status <= MAX_STATUS) {
+                        counts[status] = Math.max(Long.parseLong(entry.getValue().toString()), 0);
+                    }
+                }
+                return buildOrderCountVO(counts);
+            }
+
+            // 冷加载：从数据库统计后写入缓存
+            counts = queryCounts(Collections.singletonList(userId)).getOrDefault(userId, new long[MAX_STATUS + 1]);
+            writeCounts(userId, counts, false);
+        } catch (Exception e) {
+            log.warn("读取订单数量缓存失败，改为从数据库统计，用户ID：{}", userId, e);
+            counts = queryCounts(Collections.singletonList(userId)).getOrDefault(userId, new long[MAX_STATUS + 1]);
+        }
+        return buildOrderCountVO(counts);
+    }
+
+    /**
+     * 记录订单状态变化
+     */
+    @Override
+    public void changeStatus(Long userId, Integer fromStatus, Integer toStatus) {
+        if (userId == null) {
+            return;
+        }
+        changeStatus(Collections.singletonMap(userId, 1), fromStatus, toStatus);
+    }
+
+    /**
+     * 批量记录订单状态变化
+     */
+    @Override
+    public void changeStatus(Map<Long, Integer> userOrderCounts, Integer fromStatus, Integer toStatus) {
+        if (userOrderCounts == null || userOrderCounts.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(userOrderCounts.size() + 1);
+        List<String> args = new ArrayList<>(userOrderCounts.size() * 2 + 2);
+        args.add(fromStatus == null ? "" : fromStatus.toString());
+        args.add(toStatus == null ? "" : toStatus.toString());
+        for (Map.Entry<Long, Integer> entry : userOrderCounts.entrySet()) {
+            keys.add(COUNT_KEY_PREFIX + entry.getKey());
+            args.add(entry.getValue().toString());
+        }
+        for (Long userId : userOrderCounts.keySet()) {
+            args.add(userId.toString());
+        }
+        keys.add(DIRTY_KEY);
+
+        Runnable change = () -> {
+            try {
+                stringRedisTemplate.execute(CHANGE_SCRIPT, keys, args.toArray());
+            } catch (Exception e) {
+                // 更新失败时计数会偏离，最迟在计数过期后从数据库重新统计
+                log.error("更新订单数量缓存失败，用户数量：{}，状态：{} -> {}", userOrderCounts.size(), fromStatus, toStatus, e);
+            }
+        };
+
+        TransactionUtils.afterCommit(change);
+    }
+
+    /**
+     * 定时校对最近有变化的用户的订单数量
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.order-count.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        List<String> members;
+        try {
+            members = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, reconcileBatchSize);
+        } catch (Exception e) {
+            log.warn("获取待校对用户失败", e);
+            return;
+        }
+        if (members == null || members.isEmpty()) {
+            return;
+        }
+
+        List<Long> userIds = members.stream().map(Long::valueOf).collect(Collectors.toList());
+        try {
+            Map<Long, long[]> countMap = queryCounts(userIds);
+            int repaired = 0;
+            for (Long userId : userIds) {
+                if (writeCounts(userId, countMap.getOrDefault(userId, new long[MAX_STATUS + 1]), true)) {
+                    repaired++;
+                }
+            }
+            log.debug("订单数量校对完成，用户数量：{}，已刷新：{}", userIds.size(), repaired);
+        } catch (Exception e) {
+            // 校对失败，把用户放回待校对集合
+            log.error("订单数量校对失败，稍后重试，用户数量：{}", userIds.size(), e);
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, members.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 从数据库按用户和状态分组统计订单数量
+     */
+    private Map<Long, long[]> queryCounts(List<Long> userIds) {
+        Map<Long, long[]> countMap = new HashMap<>(userIds.size() * 2);
+        for (Map<String, Object> row : orderMapper.countOrdersGroupByUserIdAndStatus(userIds)) {
+            Long userId = ((Number) row.get("userId")).longValue();
+            int status = ((Number) row.get("status")).intValue();
+            if (status >= 0 && status <= MAX_STATUS) {
+                countMap.computeIfAbsent(userId, key -> new long[MAX_STATUS + 1])[status] =
+                        ((Number) row.get("orderCount")).longValue();
+            }
+        }
+        return countMap;
+    }
+
+    /**
+     * 把统计结果写入缓存
+     * 
+     * @param overwrite true-只覆盖已存在的计数，false-只在计数不存在时写入
+     * @return 是否写入
+     */
+    private boolean writeCounts(Long userId, long[] counts, boolean overwrite) {
+        List<String> args = new ArrayList<>(counts.length + 2);
+        args.add(overwrite ? "1" : "0");
+        args.add(String.valueOf(ttlHours * 3600));
+        for (long count : counts) {
+            args.add(String.valueOf(count));
+        }
+        Long result = stringRedisTemplate.execute(LOAD_SCRIPT,
+                Collections.singletonList(COUNT_KEY_PREFIX + userId), args.toArray());
+        return result != null && result == 1;
+    }
+
+    /**
+     * 组装订单数量统计VO
+     */
+    private OrderCountVO buildOrderCountVO(long[] counts) {
+        OrderCountVO orderCountVO = new OrderCountVO();
+        orderCountVO.setUnpaidCount(counts[0]);
+        orderCountVO.setUnshippedCount(counts[1]);
+        orderCountVO.setUnreceivedCount(counts[2]);
+        orderCountVO.setUncommentedCount(counts[3]);
+        orderCountVO.setCompletedCount(counts[4]);
+        orderCountVO.setCancelledCount(counts[5]);
+        orderCountVO.setRefundedCount(counts[6]);
+        orderCountVO.setTotalCount(Arrays.stream(counts).sum());
+        return orderCountVO;
+    }
+}
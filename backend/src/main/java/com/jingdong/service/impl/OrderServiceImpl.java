@@ -7,21 +7,46 @@ import com.jingdong.dto.OrderQueryDTO;
 import com.jingdong.entity.*;
 import com.jingdong.exception.BusinessException;
 import com.jingdong.mapper.*;
+import com.jingdong.service.CartStorageService;
+import com.jingdong.service.OrderCountService;
 import com.jingdong.service.OrderService;
+import com.jingdong.service.OrderTimeoutService;
+import com.jingdong.service.ProductSalesService;
+import com.jingdong.service.StockReservationService;
+import com.jingdong.service.StockService;
+import com.jingdong.utils.OrderNoGenerator;
+import com.jingdong.utils.SegmentIdGenerator;
+import com.jingdong.vo.OrderBatchShipVO;
+import com.jingdong.vo.OrderCursorPageVO;
 import com.jingdong.vo.OrderItemVO;
 import com.jingdong.vo.OrderVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -42,11 +67,50 @@ public class OrderServiceImpl implements OrderService {
     private OrderItemMapper orderItemMapper;
 
     @Autowired
-    private CartMapper cartMapper;
+    private CartStorageService cartStorageService;
 
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderCountService orderCountService;
+
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private ProductSalesService productSalesService;
+
+    @Autowired
+    private OrderNoGenerator orderNoGenerator;
+
+    @Autowired
+    private SegmentIdGenerator segmentIdGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 批量发货时每块的订单数量
+     */
+    @Value("${mall.order-ship.chunk-size:1000}")
+    private int shipChunkSize;
+
+    /**
+     * 待付款订单超时时间（分钟）
+     */
+    @Value("${mall.order-timeout.minutes:30}")
+    private long orderTimeoutMinutes;
+
     /**
      * 创建订单
      */
@@ -61,7 +125,9 @@ public class OrderServiceImpl implements OrderService {
 
         if (orderCreateDTO.getCartIds() != null && !orderCreateDTO.getCartIds().isEmpty()) {
             // 从购物车创建订单
-            cartItems = cartMapper.findSelectedCartByUserId(userId);
+            cartItems = cartStorageService.listItems(userId).stream()
+                    .filter(cart -> Integer.valueOf(1).equals(cart.getSelected()))
+                    .collect(Collectors.toList());
             if (cartItems.isEmpty()) {
                 throw new BusinessException("请选择要购买的商品");
             }
@@ -72,6 +138,19 @@ public class OrderServiceImpl implements OrderService {
             throw new BusinessException("订单商品信息不能为空");
         }
 
+        // 一次性加载本单涉及的全部商品快照（按商品ID索引），避免逐行查询
+        Map<Long, Integer> requiredQuantities = new LinkedHashMap<>();
+        if (!cartItems.isEmpty()) {
+            for (Cart cartItem : cartItems) {
+                requiredQuantities.merge(cartItem.getProductId(), cartItem.getQuantity(), Integer::sum);
+            }
+        } else {
+            for (OrderCreateDTO.OrderItemDTO itemDTO : orderItemDTOs) {
+                requiredQuantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+            }
+        }
+        Map<Long, Product> productSnapshot = loadProductSnapshot(requiredQuantities.keySet());
+
         // 验证商品库存和计算总金额
         BigDecimal calculatedTotal = BigDecimal.ZERO;
         List<OrderItem> orderItems = new ArrayList<>();
@@ -79,21 +158,15 @@ public class OrderServiceImpl implements OrderService {
         if (!cartItems.isEmpty()) {
             // 从购物车商品创建订单项
             for (Cart cartItem : cartItems) {
-                Product product = productMapper.selectById(cartItem.getProductId());
-                if (product == null || product.getDeleted() == 1 || product.getStatus() == 0) {
-                    throw new BusinessException("商品不存在或已下架：" + cartItem.getProductName());
+                Product product = productSnapshot.get(cartItem.getProductId());
+                if (!isProductOnSale(product)) {
+                    throw new BusinessException("商品不存在或已下架：" + (product != null ? product.getProductName() : cartItem.getProductId()));
                 }
-                if (product.getStock() < cartItem.getQuantity()) {
-                    throw new BusinessException("商品库存不足：" + cartItem.getProductName());
+                if (product.getStock() < requiredQuantities.get(cartItem.getProductId())) {
+                    throw new BusinessException("商品库存不足：" + product.getProductName());
                 }
 
-                OrderItem orderItem = new OrderItem();
-                orderItem.setProductId(cartItem.getProductId());
-                orderItem.setProductName(product.getProductName());
-                orderItem.setProductImage(product.getMainImage());
-                orderItem.setProductPrice(product.getPrice());
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setTotalPrice(product.getPrice().multiply(new BigDecimal(cartItem.getQuantity())));
+                OrderItem orderItem = buildOrderItem(product, cartItem.getQuantity());
                 orderItems.add(orderItem);
 
                 calculatedTotal = calculatedTotal.add(orderItem.getTotalPrice());
@@ -101,21 +174,15 @@ public class OrderServiceImpl implements OrderService {
         } else {
             // 从立即购买商品创建订单项
             for (OrderCreateDTO.OrderItemDTO itemDTO : orderItemDTOs) {
-                Product product = productMapper.selectById(itemDTO.getProductId());
-                if (product == null || product.getDeleted() == 1 || product.getStatus() == 0) {
+                Product product = productSnapshot.get(itemDTO.getProductId());
+                if (!isProductOnSale(product)) {
                     throw new BusinessException("商品不存在或已下架");
                 }
-                if (product.getStock() < itemDTO.getQuantity()) {
+                if (product.getStock() < requiredQuantities.get(itemDTO.getProductId())) {
                     throw new BusinessException("商品库存不足：" + product.getProductName());
                 }
 
-                OrderItem orderItem = new OrderItem();
-                orderItem.setProductId(itemDTO.getProductId());
-                orderItem.setProductName(product.getProductName());
-                orderItem.setProductImage(product.getMainImage());
-                orderItem.setProductPrice(product.getPrice());
-                orderItem.setQuantity(itemDTO.getQuantity());
-                orderItem.setTotalPrice(product.getPrice().multiply(new BigDecimal(itemDTO.getQuantity())));
+                OrderItem orderItem = buildOrderItem(product, itemDTO.getQuantity());
                 orderItems.add(orderItem);
 
                 calculatedTotal = calculatedTotal.add(orderItem.getTotalPrice());
@@ -128,7 +195,8 @@ public class OrderServiceImpl implements OrderService {
             throw new BusinessException("订单金额计算错误");
         }
 
-        // 创建订单
+        // 创建订单（时间精确到秒，与数据库DATETIME保存的值一致）
+        LocalDateTime now = LocalDateTime.now().withNano(0);
         Order order = new Order();
         order.setOrderNo(generateOrderNo());
         order.setUserId(userId);
@@ -143,8 +211,8 @@ public class OrderServiceImpl implements OrderService {
         order.setReceiverPhone(orderCreateDTO.getReceiverPhone());
         order.setReceiverAddress(orderCreateDTO.getReceiverAddress());
         order.setRemark(orderCreateDTO.getRemark());
-        order.setCreateTime(LocalDateTime.now());
-        order.setUpdateTime(LocalDateTime.now());
+        order.setCreateTime(now);
+        order.setUpdateTime(now);
 
         int result = orderMapper.insert(order);
         if (result <= 0) {
@@ -153,32 +221,45 @@ public class OrderServiceImpl implements OrderService {
 
         // 创建订单详情
         for (OrderItem orderItem : orderItems) {
+            orderItem.setOrderItemId(segmentIdGenerator.nextId(OrderItem.class));
             orderItem.setOrderId(order.getOrderId());
-            orderItem.setCreateTime(LocalDateTime.now());
-            orderItem.setUpdateTime(LocalDateTime.now());
+            orderItem.setCreateTime(now);
+            orderItem.setUpdateTime(now);
         }
         
         // 批量插入订单详情
         orderItemMapper.batchInsert(orderItems);
 
-        // 减少商品库存
-        for (OrderItem orderItem : orderItems) {
-            int stockResult = productMapper.decreaseStock(orderItem.getProductId(), orderItem.getQuantity());
-            if (stockResult <= 0) {
-                throw new BusinessException("库存扣减失败：" + orderItem.getProductName());
-            }
+        // 批量减少商品库存（整单一次扣减，失败则整单回滚）
+        // 启用库存预占时在缓存中原子预占，数据库库存由后台异步写回
+        List<Long> failedProductIds = stockReservationService.isEnabled()
+                ? stockReservationService.reserve(requiredQuantities)
+                : stockService.deductStock(requiredQuantities);
+        if (!failedProductIds.isEmpty()) {
+            String failedNames = failedProductIds.stream()
+                    .map(productId -> productSnapshot.get(productId).getProductName())
+                    .collect(Collectors.joining("、"));
+            throw new BusinessException("库存扣减失败：" + failedNames);
         }
 
         // 如果是从购物车创建订单，删除购物车中的商品
         if (!cartItems.isEmpty()) {
             List<Long> cartIds = cartItems.stream().map(Cart::getCartId).collect(Collectors.toList());
-            cartMapper.deleteByCartIds(cartIds);
+            cartStorageService.removeItems(userId, cartIds);
         }
 
+        orderCountService.changeStatus(userId, null, order.getStatus());
+        orderTimeoutService.schedule(Collections.singletonList(order));
+
         log.info("订单创建成功，订单ID：{}，订单号：{}", order.getOrderId(), order.getOrderNo());
 
-        // 返回订单信息
-        return getOrderDetail(userId, order.getOrderId());
+        // 直接用内存中的订单和订单详情（ID已预先分配）组装返回信息，无需回查数据库
+        OrderVO orderVO = convertToOrderVO(order);
+        List<OrderItemVO> itemVOs = orderItems.stream()
+                .map(this::convertToOrderItemVO)
+                .collect(Collectors.toList());
+        orderVO.setOrderItems(itemVOs);
+        return orderVO;
     }
 
     /**
@@ -195,30 +276,51 @@ public class OrderServiceImpl implements OrderService {
         IPage<OrderVO> orderVOPage = orderPage.convert(this::convertToOrderVO);
 
         // 批量查询订单详情
-        if (!orderVOPage.getRecords().isEmpty()) {
-            List<Long> orderIds = orderVOPage.getRecords().stream()
-                    .map(OrderVO::getOrderId)
-                    .collect(Collectors.toList());
-            
-            List<OrderItem> orderItems = orderItemMapper.findByOrderIds(orderIds);
-            Map<Long, List<OrderItem>> orderItemMap = orderItems.stream()
-                    .collect(Collectors.groupingBy(OrderItem::getOrderId));
-
-            // 设置订单详情
-            for (OrderVO orderVO : orderVOPage.getRecords()) {
-                List<OrderItem> items = orderItemMap.get(orderVO.getOrderId());
-                if (items != null) {
-                    List<OrderItemVO> itemVOs = items.stream()
-                            .map(this::convertToOrderItemVO)
-                            .collect(Collectors.toList());
-                    orderVO.setOrderItems(itemVOs);
-                }
-            }
-        }
+        fillOrderItems(orderVOPage.getRecords());
 
         return orderVOPage;
     }
 
+    /**
+     * 游标分页查询用户订单列表
+     */
+    @Override
+    public OrderCursorPageVO getOrderListByCursor(Long userId, OrderQueryDTO orderQueryDTO) {
+        log.info("游标分页查询用户订单列表，用户ID：{}，游标：{}", userId, orderQueryDTO.getCursor());
+
+        LocalDateTime cursorTime = null;
+        Long cursorOrderId = null;
+        if (StringUtils.hasText(orderQueryDTO.getCursor())) {
+            String[] cursorParts = decodeCursor(orderQueryDTO.getCursor());
+            cursorTime = LocalDateTime.parse(cursorParts[0]);
+            cursorOrderId = Long.valueOf(cursorParts[1]);
+        }
+
+        // 多取一条用于判断是否还有下一页
+        int pageSize = orderQueryDTO.getPageSize();
+        List<Order> orders = orderMapper.findOrdersByUserIdAfterCursor(
+                userId, orderQueryDTO.getStatus(), cursorTime, cursorOrderId, pageSize + 1);
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        List<OrderVO> orderVOs = orders.stream()
+                .map(this::convertToOrderVO)
+                .collect(Collectors.toList());
+        fillOrderItems(orderVOs);
+
+        OrderCursorPageVO cursorPageVO = new OrderCursorPageVO();
+        cursorPageVO.setRecords(orderVOs);
+        cursorPageVO.setPageSize(pageSize);
+        cursorPageVO.setHasMore(hasMore);
+        if (hasMore) {
+            Order lastOrder = orders.get(orders.size() - 1);
+            cursorPageVO.setNextCursor(encodeCursor(lastOrder.getCreateTime(), lastOrder.getOrderId()));
+        }
+        return cursorPageVO;
+    }
+
     /**
      * 获取订单详情
      */
@@ -251,26 +353,14 @@ public class OrderServiceImpl implements OrderService {
     public String cancelOrder(Long userId, Long orderId) {
         log.info("取消订单，用户ID：{}，订单ID：{}", userId, orderId);
 
-        Order order = orderMapper.findByUserIdAndOrderId(userId, orderId);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        if (order.getStatus() != 0) {
-            throw new BusinessException("只能取消待付款订单");
-        }
-
-        // 更新订单状态
-        int result = orderMapper.updateOrderStatus(orderId, 5); // 已取消
-        if (result <= 0) {
-            throw new BusinessException("取消订单失败");
-        }
+        // 待付款 -> 已取消，并发重复取消时只有一个请求能成功
+        orderStateMachine.fire(userId, orderId, OrderStateMachine.OrderEvent.CANCEL);
 
         // 恢复商品库存
-        List<OrderItem> orderItems = orderItemMapper.findByOrderId(orderId);
-        for (OrderItem orderItem : orderItems) {
-            productMapper.increaseStock(orderItem.getProductId(), orderItem.getQuantity());
-        }
+        restoreStock(orderItemMapper.findByOrderId(orderId));
+
+        orderCountService.changeStatus(userId, 0, 5);
+        orderTimeoutService.remove(orderId);
 
         log.info("订单取消成功，订单ID：{}", orderId);
         return "订单取消成功";
@@ -284,23 +374,10 @@ public class OrderServiceImpl implements OrderService {
     public String confirmOrder(Long userId, Long orderId) {
         log.info("确认收货，用户ID：{}，订单ID：{}", userId, orderId);
 
-        Order order = orderMapper.findByUserIdAndOrderId(userId, orderId);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        if (order.getStatus() != 2) {
-            throw new BusinessException("只能确认待收货订单");
-        }
+        // 待收货 -> 待评价，同时写入确认收货时间
+        orderStateMachine.fire(userId, orderId, OrderStateMachine.OrderEvent.CONFIRM);
 
-        // 更新订单状态和确认收货时间
-        String confirmTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        int result = orderMapper.updateConfirmTime(orderId, confirmTime);
-        if (result > 0) {
-            orderMapper.updateOrderStatus(orderId, 3); // 待评价
-        } else {
-            throw new BusinessException("确认收货失败");
-        }
+        orderCountService.changeStatus(userId, 2, 3);
 
         log.info("确认收货成功，订单ID：{}", orderId);
         return "确认收货成功";
@@ -329,6 +406,7 @@ public class OrderServiceImpl implements OrderService {
         int result = orderMapper.updateById(order);
         
         if (result > 0) {
+            orderCountService.changeStatus(userId, order.getStatus(), null);
             log.info("订单删除成功，订单ID：{}", orderId);
             return "订单删除成功";
         } else {
@@ -344,23 +422,18 @@ public class OrderServiceImpl implements OrderService {
     public String payOrder(Long userId, Long orderId) {
         log.info("支付订单，用户ID：{}，订单ID：{}", userId, orderId);
 
-        Order order = orderMapper.findByUserIdAndOrderId(userId, orderId);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
+        // 待付款 -> 待发货，同时写入支付状态和支付时间，并发重复支付时只有一个请求能成功
+        orderStateMachine.fire(userId, orderId, OrderStateMachine.OrderEvent.PAY);
 
-        if (order.getStatus() != 0) {
-            throw new BusinessException("只能支付待付款订单");
-        }
+        orderCountService.changeStatus(userId, 0, 1);
+        orderTimeoutService.remove(orderId);
 
-        // 更新支付状态和支付时间
-        String paymentTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        int result = orderMapper.updatePaymentStatus(orderId, 1, paymentTime);
-        if (result > 0) {
-            orderMapper.updateOrderStatus(orderId, 1); // 待发货
-        } else {
-            throw new BusinessException("支付失败");
+        // 累加商品销量（异步批量写回）
+        Map<Long, Integer> salesQuantities = new HashMap<>();
+        for (OrderItem orderItem : orderItemMapper.findByOrderId(orderId)) {
+            salesQuantities.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
         }
+        productSalesService.recordSales(salesQuantities);
 
         log.info("订单支付成功，订单ID：{}", orderId);
         return "支付成功";
@@ -370,30 +443,203 @@ public class OrderServiceImpl implements OrderService {
      * 发货
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String shipOrder(Long orderId) {
         log.info("订单发货，订单ID：{}", orderId);
 
-        Order order = orderMapper.selectById(orderId);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
+        // 待发货 -> 待收货，与批量发货共用同一路径：锁定待发货订单时同时取得用户ID，不再额外查询
+        if (!shipChunk(Collections.singletonList(orderId)).isEmpty()) {
+            // 发货失败时才查询订单，区分订单不存在和状态不符
+            if (orderMapper.selectById(orderId) == null) {
+                throw new BusinessException("订单不存在");
+            }
+            throw new BusinessException(OrderStateMachine.OrderEvent.SHIP.getErrorMessage());
         }
 
-        if (order.getStatus() != 1) {
-            throw new BusinessException("只能发货待发货订单");
+        log.info("订单发货成功，订单ID：{}", orderId);
+        return "发货成功";
+    }
+
+    /**
+     * 批量发货
+     */
+    @Override
+    public OrderBatchShipVO batchShipOrders(List<Long> orderIds) {
+        log.info("批量发货，订单数量：{}", orderIds.size());
+
+        BatchShipContext context = new BatchShipContext();
+        for (Long orderId : orderIds) {
+            context.add(orderId);
         }
+        return context.finish();
+    }
 
-        // 更新发货时间和订单状态
-        String shipTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        int result = orderMapper.updateShipTime(orderId, shipTime);
-        if (result > 0) {
-            orderMapper.updateOrderStatus(orderId, 2); // 待收货
+    /**
+     * 从CSV批量发货
+     */
+    @Override
+    public OrderBatchShipVO batchShipOrders(InputStream inputStream) {
+        log.info("从CSV批量发货");
+
+        BatchShipContext context = new BatchShipContext();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String orderId = line.split(",", 2)[0].trim();
+                if (orderId.isEmpty()) {
+                    continue;
+                }
+                try {
+                    context.add(Long.valueOf(orderId));
+                } catch (NumberFormatException e) {
+                    // 表头或格式错误的行
+                    context.invalidLineCount++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取发货文件失败", e);
+            throw new BusinessException("读取发货文件失败");
+        }
+        return context.finish();
+    }
+
+    /**
+     * 在一个事务内发货一块订单
+     * 
+     * @return 被拒绝的订单ID列表
+     */
+    private List<Long> shipChunk(List<Long> orderIds) {
+        return transactionTemplate.execute(status -> {
+            List<Order> shippableOrders = orderMapper.lockOrdersByStatus(orderIds, 1);
+            if (shippableOrders.isEmpty()) {
+                return orderIds;
+            }
+            List<Long> shippableIds = shippableOrders.stream()
+                    .map(Order::getOrderId)
+                    .collect(Collectors.toList());
+            int result = orderMapper.batchShipOrders(shippableIds);
+            if (result != shippableIds.size()) {
+                throw new BusinessException("批量发货失败");
+            }
+            orderCountService.changeStatus(countByUser(shippableOrders), 1, 2);
+
+            Set<Long> shippedIds = new HashSet<>(shippableIds);
+            return orderIds.stream()
+                    .filter(orderId -> !shippedIds.contains(orderId))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * 批量发货过程：去重后按块提交，记录被拒绝的订单
+     */
+    private class BatchShipContext {
+
+        private final Set<Long> seenIds = new HashSet<>();
+
+        private final List<Long> chunk = new ArrayList<>(shipChunkSize);
+
+        private final List<Long> rejectedOrderIds = new ArrayList<>();
+
+        private int shippedCount;
+
+        private int invalidLineCount;
+
+        private final long startTime = System.currentTimeMillis();
+
+        void add(Long orderId) {
+            if (orderId == null || !seenIds.add(orderId)) {
+                return;
+            }
+            chunk.add(orderId);
+            if (chunk.size() >= shipChunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Long> chunkIds = new ArrayList<>(chunk);
+            chunk.clear();
+            List<Long> rejected = shipChunk(chunkIds);
+            shippedCount += chunkIds.size() - rejected.size();
+            rejectedOrderIds.addAll(rejected);
+        }
+
+        OrderBatchShipVO finish() {
+            flush();
+            OrderBatchShipVO batchShipVO = new OrderBatchShipVO();
+            batchShipVO.setTotalCount(seenIds.size());
+            batchShipVO.setShippedCount(shippedCount);
+            batchShipVO.setRejectedOrderIds(rejectedOrderIds);
+            batchShipVO.setInvalidLineCount(invalidLineCount);
+            log.info("批量发货完成，订单数量：{}，发货成功：{}，拒绝：{}，耗时：{}ms",
+                    seenIds.size(), shippedCount, rejectedOrderIds.size(), System.currentTimeMillis() - startTime);
+            return batchShipVO;
+        }
+    }
+
+    /**
+     * 按商品汇总订单明细数量并归还库存（启用库存预占时归还到预占缓存）
+     * 
+     * @return 商品ID到归还数量的映射
+     */
+    private Map<Long, Integer> restoreStock(List<OrderItem> orderItems) {
+        Map<Long, Integer> releaseQuantities = new HashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            releaseQuantities.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
+        }
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.release(releaseQuantities);
         } else {
-            throw new BusinessException("发货失败");
+            stockService.restoreStock(releaseQuantities);
         }
+        return releaseQuantities;
+    }
 
-        log.info("订单发货成功，订单ID：{}", orderId);
-        return "发货成功";
+    /**
+     * 按用户统计订单数量
+     */
+    private Map<Long, Integer> countByUser(List<Order> orders) {
+        Map<Long, Integer> userOrderCounts = new HashMap<>();
+        for (Order order : orders) {
+            userOrderCounts.merge(order.getUserId(), 1, Integer::sum);
+        }
+        return userOrderCounts;
+    }
+
+    /**
+     * 批量取消超时未支付的订单
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> cancelExpiredOrders(List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 锁定仍待付款且确已超时的订单，已支付或已取消的直接跳过
+        LocalDateTime deadline = LocalDateTime.now().minusMinutes(orderTimeoutMinutes);
+        List<Order> expiredOrders = orderMapper.lockExpiredUnpaidOrders(orderIds, deadline);
+        if (expiredOrders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> expiredOrderIds = expiredOrders.stream()
+                .map(Order::getOrderId)
+                .collect(Collectors.toList());
+
+        int result = orderMapper.batchCancelUnpaidOrders(expiredOrderIds);
+        if (result != expiredOrderIds.size()) {
+            throw new BusinessException("超时订单取消失败");
+        }
+
+        // 按商品汇总后一次性归还库存
+        Map<Long, Integer> releaseQuantities = restoreStock(orderItemMapper.findByOrderIds(expiredOrderIds));
+
+        orderCountService.changeStatus(countByUser(expiredOrders), 0, 5);
+        log.info("超时订单取消成功，订单数量：{}，涉及商品数量：{}", expiredOrderIds.size(), releaseQuantities.size());
+        return expiredOrderIds;
     }
 
     /**
@@ -401,16 +647,101 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public String generateOrderNo() {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String random = String.valueOf((int) (Math.random() * 1000));
-        String orderNo = "JD" + timestamp + String.format("%03d", Integer.parseInt(random));
-        
-        // 检查订单号是否已存在
-        if (orderMapper.checkOrderNoExists(orderNo) > 0) {
-            return generateOrderNo(); // 递归生成新的订单号
+        // 进程内雪花算法生成，保证唯一，无需再查询数据库
+        return orderNoGenerator.nextOrderNo();
+    }
+
+    /**
+     * 批量查询并设置订单详情
+     */
+    private void fillOrderItems(List<OrderVO> orderVOs) {
+        if (orderVOs.isEmpty()) {
+            return;
         }
-        
-        return orderNo;
+        List<Long> orderIds = orderVOs.stream()
+                .map(OrderVO::getOrderId)
+                .collect(Collectors.toList());
+
+        List<OrderItem> orderItems = orderItemMapper.findByOrderIds(orderIds);
+        Map<Long, List<OrderItem>> orderItemMap = orderItems.stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+
+        // 设置订单详情
+        for (OrderVO orderVO : orderVOs) {
+            List<OrderItem> items = orderItemMap.get(orderVO.getOrderId());
+            if (items != null) {
+                List<OrderItemVO> itemVOs = items.stream()
+                        .map(this::convertToOrderItemVO)
+                        .collect(Collectors.toList());
+                orderVO.setOrderItems(itemVOs);
+            }
+        }
+    }
+
+    /**
+     * 生成游标（创建时间和订单ID拼接后Base64编码，对前端不透明）
+     */
+    private String encodeCursor(LocalDateTime createTime, Long orderId) {
+        String cursor = createTime + "," + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，返回 [创建时间, 订单ID]
+     */
+    private String[] decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] cursorParts = decoded.split(",");
+            if (cursorParts.length != 2) {
+                throw new BusinessException("分页游标无效");
+            }
+            // 提前校验格式，避免把非法值带入查询
+            LocalDateTime.parse(cursorParts[0]);
+            Long.valueOf(cursorParts[1]);
+            return cursorParts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("分页游标无效");
+        }
+    }
+
+    /**
+     * 批量加载商品快照
+     * 使用一条IN查询取出所有商品，按商品ID建立索引
+     */
+    private Map<Long, Product> loadProductSnapshot(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Product> products = productMapper.findByProductIds(productIds);
+        Map<Long, Product> productMap = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            productMap.put(product.getProductId(), product);
+        }
+        return productMap;
+    }
+
+    /**
+     * 判断商品是否可售（存在、未删除且已上架）
+     */
+    private boolean isProductOnSale(Product product) {
+        return product != null
+                && !Integer.valueOf(1).equals(product.getDeleted())
+                && !Integer.valueOf(0).equals(product.getStatus());
+    }
+
+    /**
+     * 根据商品快照构建订单项
+     */
+    private OrderItem buildOrderItem(Product product, Integer quantity) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProductId(product.getProductId());
+        orderItem.setProductName(product.getProductName());
+        orderItem.setProductImage(product.getMainImage());
+        orderItem.setProductPrice(product.getPrice());
+        orderItem.setQuantity(quantity);
+        orderItem.setTotalPrice(product.getPrice().multiply(new BigDecimal(quantity)));
+        return orderItem;
     }
 
     /**
@@ -0,0 +1,107 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Order;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单状态机
+ * 每次状态流转只执行一条带原状态条件的UPDATE（WHERE order_id = ? AND status = ?），
+ * 以影响行数判断是否成功：并发重复支付/取消时只有一个请求能成功，无需预先查询或加锁；
+ * 失败时才查询订单，用于给出准确的错误提示
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Component
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 执行订单状态流转
+     * 
+     * @param userId 用户ID（为空时不校验订单归属，用于后台操作）
+     * @param orderId 订单ID
+     * @param event 订单事件
+     */
+    public void fire(Long userId, Long orderId, OrderEvent event) {
+        int result = orderMapper.compareAndSetStatus(orderId, userId, event.getFromStatus(), event.getToStatus());
+        if (result > 0) {
+            log.debug("订单状态流转成功，订单ID：{}，事件：{}，状态：{} -> {}",
+                    orderId, event, event.getFromStatus(), event.getToStatus());
+            return;
+        }
+
+        // 流转失败：区分订单不存在和状态不符
+        Order order = userId != null ? orderMapper.findByUserIdAndOrderId(userId, orderId) : orderMapper.selectById(orderId);
+        if (order == null) {
+            throw new BusinessException("订单不存在");
+        }
+        throw new BusinessException(event.getErrorMessage());
+    }
+
+    /**
+     * 订单事件
+     */
+    public enum OrderEvent {
+
+        /**
+         * 支付：待付款 -> 待发货
+         */
+        PAY(0, 1, "只能支付待付款订单"),
+
+        /**
+         * 发货：待发货 -> 待收货
+         */
+        SHIP(1, 2, "只能发货待发货订单"),
+
+        /**
+         * 确认收货：待收货 -> 待评价
+         */
+        CONFIRM(2, 3, "只能确认待收货订单"),
+
+        /**
+         * 取消：待付款 -> 已取消
+         */
+        CANCEL(0, 5, "只能取消待付款订单");
+
+        /**
+         * 原状态
+         */
+        private final int fromStatus;
+
+        /**
+         * 目标状态
+         */
+        private final int toStatus;
+
+        /**
+         * 状态不符时的错误提示
+         */
+        private final String errorMessage;
+
+        OrderEvent(int fromStatus, int toStatus, String errorMessage) {
+            this.fromStatus = fromStatus;
+            this.toStatus = toStatus;
+            this.errorMessage = errorMessage;
+        }
+
+        public int getFromStatus() {
+            return fromStatus;
+        }
+
+        public int getToStatus() {
+            return toStatus;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+}
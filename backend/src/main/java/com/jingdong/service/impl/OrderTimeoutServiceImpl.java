@@ -0,0 +1,243 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Order;
+import com.jingdong.mapper.OrderMapper;
+import com.jingdong.service.OrderService;
+import com.jingdong.service.OrderTimeoutService;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 订单超时服务实现类
+ * 基于Redis有序集合的延迟队列：成员为订单ID，分值为支付截止时间（毫秒），
+ * 定时任务通过Lua脚本原子领取已到期的订单，多节点部署时每个订单只会被一个节点处理；
+ * 另有低频补偿任务按（status, create_time）索引找回队列中丢失的订单
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class OrderTimeoutServiceImpl implements OrderTimeoutService {
+
+    /**
+     * 超时队列键
+     */
+    private static final String TIMEOUT_KEY = "order:timeout";
+
+    /**
+     * 领取脚本：取出分值不超过当前时间的前N个订单并从队列中移除
+     */
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) " +
+            "if #ids > 0 then redis.call('ZREM', KEYS[1], unpack(ids)) end " +
+            "return ids",
+            List.class);
+
+    /**
+     * 处理失败时重新入队的延迟（毫秒）
+     */
+    private static final long RETRY_DELAY_MILLIS = 60_000L;
+
+    /**
+     * 订单服务（延迟注入，避免与订单服务循环依赖）
+     */
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 是否启用超时自动取消
+     */
+    @Value("${mall.order-timeout.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 待付款订单超时时间（分钟）
+     */
+    @Value("${mall.order-timeout.minutes:30}")
+    private long timeoutMinutes;
+
+    /**
+     * 每批取消的订单数量
+     */
+    @Value("${mall.order-timeout.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 补偿任务单次最多重新入队的订单数量，剩余的留给下次任务
+     */
+    @Value("${mall.order-timeout.sweep-max-rows:10000}")
+    private int sweepMaxRows;
+
+    /**
+     * 登记待付款订单
+     */
+    @Override
+    public void schedule(List<Order> orders) {
+        if (!enabled || orders == null || orders.isEmpty()) {
+            return;
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(orders.size() * 2);
+        for (Order order : orders) {
+            long deadline = toEpochMilli(order.getCreateTime()) + timeoutMinutes * 60_000L;
+            tuples.add(new DefaultTypedTuple<>(order.getOrderId().toString(), (double) deadline));
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().add(TIMEOUT_KEY, tuples);
+            } catch (Exception e) {
+                // 登记失败的订单由补偿任务找回
+                log.error("登记订单超时失败，订单数量：{}", tuples.size(), e);
+            }
+        });
+    }
+
+    /**
+     * 移除订单的超时登记
+     */
+    @Override
+    public void remove(Long orderId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().remove(TIMEOUT_KEY, orderId.toString());
+            } catch (Exception e) {
+                // 移除失败无影响，到期时取消语句只作用于仍待付款的订单
+                log.warn("移除订单超时登记失败，订单ID：{}", orderId, e);
+            }
+        });
+    }
+
+    /**
+     * 定时取消已到期的订单，每次循环领取一批，直到没有到期订单
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.order-timeout.poll-interval-ms:1000}")
+    public void processExpiredOrders() {
+        if (!enabled) {
+            return;
+        }
+        while (true) {
+            List<Long> orderIds = claimExpiredOrders();
+            if (orderIds.isEmpty()) {
+                return;
+            }
+            try {
+                List<Long> cancelledIds = orderService.cancelExpiredOrders(orderIds);
+                log.info("超时订单自动取消完成，到期数量：{}，取消数量：{}", orderIds.size(), cancelledIds.size());
+            } catch (Exception e) {
+                log.error("超时订单自动取消失败，稍后重试，订单数量：{}", orderIds.size(), e);
+                requeue(orderIds);
+                return;
+            }
+            if (orderIds.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 补偿任务：把超过截止时间仍待付款的订单重新放入队列
+     * 覆盖登记失败、Redis数据丢失或领取后节点宕机等情况；
+     * 按（创建时间, 订单ID）游标逐页扫描，直到某页不满或达到单次上限
+     */
+    @Scheduled(fixedDelayString = "${mall.order-timeout.sweep-interval-ms:600000}",
+            initialDelayString = "${mall.order-timeout.sweep-initial-delay-ms:60000}")
+    public void sweepMissedOrders() {
+        if (!enabled) {
+            return;
+        }
+        // 多留一个轮询周期，避免与正常到期的订单重复处理
+        LocalDateTime deadline = LocalDateTime.now().minusMinutes(timeoutMinutes + 1);
+        LocalDateTime cursorTime = null;
+        Long cursorOrderId = null;
+        int total = 0;
+        while (total < sweepMaxRows) {
+            int limit = Math.min(batchSize, sweepMaxRows - total);
+            List<Order> orders = orderMapper.findUnpaidOrdersBefore(deadline, cursorTime, cursorOrderId, limit);
+            if (!orders.isEmpty()) {
+                requeue(orders.stream().map(Order::getOrderId).collect(Collectors.toList()));
+                total += orders.size();
+                Order last = orders.get(orders.size() - 1);
+                cursorTime = last.getCreateTime();
+                cursorOrderId = last.getOrderId();
+            }
+            if (orders.size() < limit) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.warn("发现遗漏的超时订单，重新入队，数量：{}", total);
+        }
+    }
+
+    /**
+     * 原子领取一批已到期的订单
+     */
+    private List<Long> claimExpiredOrders() {
+        List<?> result;
+        try {
+            result = stringRedisTemplate.execute(CLAIM_SCRIPT, Collections.singletonList(TIMEOUT_KEY),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(batchSize));
+        } catch (Exception e) {
+            log.warn("领取超时订单失败", e);
+            return Collections.emptyList();
+        }
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> orderIds = new ArrayList<>(result.size());
+        for (Object orderId : result) {
+            orderIds.add(Long.valueOf(orderId.toString()));
+        }
+        return orderIds;
+    }
+
+    /**
+     * 把订单重新放入队列，延迟一段时间后再处理
+     */
+    private void requeue(List<Long> orderIds) {
+        double retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(orderIds.size() * 2);
+        for (Long orderId : orderIds) {
+            tuples.add(new DefaultTypedTuple<>(orderId.toString(), retryAt));
+        }
+        try {
+            stringRedisTemplate.opsForZSet().add(TIMEOUT_KEY, tuples);
+        } catch (Exception e) {
+            log.error("超时订单重新入队失败，等待补偿任务处理，订单数量：{}", orderIds.size(), e);
+        }
+    }
+
+    private long toEpochMilli(LocalDateTime time) {
+        LocalDateTime createTime = time != null ? time : LocalDateTime.now();
+        return createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,268 @@
+package com.jingdong.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.jingdong.entity.Product;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.ProductCacheService;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品缓存服务实现类
+ * L1为Caffeine本地缓存，L2为Redis缓存（fastjson2序列化），最后才查询数据库：
+ * 同一节点对同一商品的并发未命中只加载一次（Caffeine按键单飞），
+ * 不存在的商品以空值标记短时间缓存，两级缓存的过期时间都带随机抖动避免集中失效；
+ * 缓存的商品不含库存（库存变化频繁，展示时单独读取），只有商品信息变化才需要失效；
+ * 失效时删除Redis缓存并通过Redis发布订阅通知所有节点清除本地缓存，
+ * 并在延迟一段时间后再删除一次，清除失效前已开始加载的请求回填的旧数据
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductCacheServiceImpl implements ProductCacheService {
+
+    /**
+     * 商品缓存键前缀
+     */
+    private static final String CACHE_KEY_PREFIX = "product:detail:";
+
+    /**
+     * 缓存失效通知频道
+     */
+    private static final String INVALIDATE_CHANNEL = "product:cache:invalidate";
+
+    /**
+     * Redis中的空值标记
+     */
+    private static final String NULL_VALUE = "null";
+
+    /**
+     * 本地缓存中的空值标记
+     */
+    private static final Product NULL_PRODUCT = new Product();
+
+    /**
+     * 过期时间抖动比例
+     */
+    private static final double TTL_JITTER_RATIO = 0.2;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 本地缓存最大商品数
+     */
+    @Value("${mall.product-cache.local-max-size:10000}")
+    private long localMaxSize;
+
+    /**
+     * 本地缓存过期时间（秒）
+     */
+    @Value("${mall.product-cache.local-ttl-seconds:30}")
+    private long localTtlSeconds;
+
+    /**
+     * Redis缓存过期时间（秒）
+     */
+    @Value("${mall.product-cache.redis-ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    /**
+     * 空值缓存过期时间（秒）
+     */
+    @Value("${mall.product-cache.null-ttl-seconds:30}")
+    private long nullTtlSeconds;
+
+    /**
+     * 延迟二次删除的间隔（毫秒），应大于一次缓存加载的耗时
+     */
+    @Value("${mall.product-cache.double-delete-delay-ms:1000}")
+    private long doubleDeleteDelayMs;
+
+    /**
+     * 本地缓存
+     */
+    private Cache<Long, Product> localCache;
+
+    /**
+     * 延迟二次删除线程
+     */
+    private final ScheduledExecutorService doubleDeleteExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-cache-double-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 初始化本地缓存并订阅失效通知
+     */
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfter(new Expiry<Long, Product>() {
+                    @Override
+                    public long expireAfterCreate(Long key, Product value, long currentTime) {
+                        long seconds = value == NULL_PRODUCT ? nullTtlSeconds : withJitter(localTtlSeconds);
+                        return TimeUnit.SECONDS.toNanos(seconds);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long key, Product value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long key, Product value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String productId = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                localCache.invalidate(Long.valueOf(productId));
+                log.debug("收到商品缓存失效通知，商品ID：{}", productId);
+            } catch (NumberFormatException e) {
+                log.warn("商品缓存失效通知格式错误：{}", productId);
+            }
+        }, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 关闭延迟二次删除线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        doubleDeleteExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取商品
+     */
+    @Override
+    public Product getProduct(Long productId) {
+        if (productId == null) {
+            return null;
+        }
+        Product product = localCache.get(productId, this::loadFromRemote);
+        return product == NULL_PRODUCT ? null : product;
+    }
+
+    /**
+     * 使商品缓存失效
+     */
+    @Override
+    public void evict(Long productId) {
+        deleteEverywhere(productId);
+        // 失效前已读到旧数据的加载可能在删除之后才回填，延迟后再删除一次
+        try {
+            doubleDeleteExecutor.schedule(() -> deleteEverywhere(productId), doubleDeleteDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("商品缓存延迟删除提交失败，商品ID：{}", productId);
+        }
+    }
+
+    /**
+     * 在当前事务提交后使商品缓存失效
+     */
+    @Override
+    public void evictAfterCommit(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = new ArrayList<>(productIds);
+        TransactionUtils.afterCommit(() -> snapshot.forEach(this::evict));
+    }
+
+    /**
+     * 删除本地缓存和Redis缓存，并通知其他节点清除本地缓存
+     */
+    private void deleteEverywhere(Long productId) {
+        localCache.invalidate(productId);
+        try {
+            stringRedisTemplate.delete(CACHE_KEY_PREFIX + productId);
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, productId.toString());
+        } catch (Exception e) {
+            // Redis不可用时其他节点的本地缓存在过期后自然失效
+            log.error("商品缓存失效通知失败，商品ID：{}", productId, e);
+        }
+    }
+
+    /**
+     * 本地缓存未命中：先查Redis，再查数据库并回填Redis（不缓存库存）
+     */
+    private Product loadFromRemote(Long productId) {
+        String cacheKey = CACHE_KEY_PREFIX + productId;
+        try {
+            String json = stringRedisTemplate.opsForValue().get(cacheKey);
+            if (json != null) {
+                return NULL_VALUE.equals(json) ? NULL_PRODUCT : withoutStock(JSON.parseObject(json, Product.class));
+            }
+        } catch (Exception e) {
+            log.warn("读取商品缓存失败，改为查询数据库，商品ID：{}", productId, e);
+        }
+
+        Product product = productMapper.selectById(productId);
+        if (product != null) {
+            withoutStock(product);
+        }
+        try {
+            if (product != null) {
+                stringRedisTemplate.opsForValue().set(cacheKey, JSON.toJSONString(product),
+                        withJitter(redisTtlSeconds), TimeUnit.SECONDS);
+            } else {
+                stringRedisTemplate.opsForValue().set(cacheKey, NULL_VALUE, nullTtlSeconds, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("写入商品缓存失败，商品ID：{}", productId, e);
+        }
+        return product != null ? product : NULL_PRODUCT;
+    }
+
+    /**
+     * 清除商品中的库存，避免缓存的库存过期后被当作当前库存使用
+     */
+    private Product withoutStock(Product product) {
+        product.setStock(null);
+        return product;
+    }
+
+    /**
+     * 在过期时间上增加随机抖动（0 ~ 20%）
+     */
+    private long withJitter(long seconds) {
+        long jitter = (long) (seconds * TTL_JITTER_RATIO);
+        return jitter > 0 ? seconds + ThreadLocalRandom.current().nextLong(jitter + 1) : seconds;
+    }
+}
@@ -0,0 +1,288 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.OrderItemMapper;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.ProductSalesService;
+import com.jingdong.service.ProductSearchService;
+import com.jingdong.utils.DeltaAccumulator;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品销量服务实现类
+ * 支付提交后把销量累加到内存，定时按商品ID升序分批写回product.sales_count（每批一条CASE语句）；
+ * 同时按天分桶保存近30天的销量，写回时顺带计算近7天/30天排行，读取排行不再扫描订单表。
+ * 多节点部署时各节点只累加本节点的支付，由定时重建从数据库校正已结束日期的每日销量；
+ * 当天的销量仍由本节点实时累加，重建时保留当天的计数器，不会丢失重建期间记录的销量
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductSalesServiceImpl implements ProductSalesService {
+
+    /**
+     * 每批写回的商品数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 短窗口天数
+     */
+    private static final int SHORT_WINDOW_DAYS = 7;
+
+    /**
+     * 长窗口天数（每日销量保留的天数）
+     */
+    private static final int LONG_WINDOW_DAYS = 30;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * 排行保留的商品数量
+     */
+    @Value("${mall.product-sales.ranking-size:100}")
+    private int rankingSize;
+
+    /**
+     * 尚未写回数据库的销量变化（商品ID -> 变化量）
+     */
+    private final DeltaAccumulator pendingDeltas = new DeltaAccumulator();
+
+    /**
+     * 每日销量（日期 -> 商品ID -> 销量）
+     */
+    private volatile Map<LocalDate, Map<Long, LongAdder>> dailySales = new ConcurrentHashMap<>();
+
+    /**
+     * 是否已从数据库加载过当天的销量（只在启动后首次重建时加载，之后当天销量以内存累加为准）
+     */
+    private boolean todayLoaded;
+
+    /**
+     * 近7天销量排行
+     */
+    private volatile List<Long> shortWindowRanking = Collections.emptyList();
+
+    /**
+     * 近30天销量排行
+     */
+    private volatile List<Long> longWindowRanking = Collections.emptyList();
+
+    /**
+     * 记录销量变化
+     */
+    @Override
+    public void recordSales(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> snapshot = new HashMap<>(quantities);
+        Runnable record = () -> {
+            Map<Long, LongAdder> todaySales = dailySales.computeIfAbsent(LocalDate.now(), key -> new ConcurrentHashMap<>());
+            for (Map.Entry<Long, Integer> entry : snapshot.entrySet()) {
+                pendingDeltas.add(entry.getKey(), entry.getValue());
+                todaySales.computeIfAbsent(entry.getKey(), key -> new LongAdder()).add(entry.getValue());
+            }
+        };
+
+        TransactionUtils.afterCommit(record);
+    }
+
+    /**
+     * 获取滚动窗口内的销量排行
+     */
+    @Override
+    public List<Long> getTopProductIds(int days, int limit) {
+        if (days != SHORT_WINDOW_DAYS && days != LONG_WINDOW_DAYS) {
+            throw new BusinessException("销量排行只支持近" + SHORT_WINDOW_DAYS + "天或近" + LONG_WINDOW_DAYS + "天");
+        }
+        List<Long> ranking = days == SHORT_WINDOW_DAYS ? shortWindowRanking : longWindowRanking;
+        return ranking.size() <= limit ? ranking : ranking.subList(0, limit);
+    }
+
+    /**
+     * 定时写回销量并刷新排行
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.product-sales.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        writePendingDeltas();
+        refreshRanking();
+    }
+
+    /**
+     * 定时从数据库重建每日销量（启动时立即执行一次）
+     * 已结束的日期整体替换为数据库统计；当天沿用正在累加的计数器，仅首次重建时并入数据库中已有的销量
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.product-sales.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        LocalDate startDate = LocalDate.now().minusDays(LONG_WINDOW_DAYS - 1);
+        List<Map<String, Object>> rows;
+        try {
+            rows = orderItemMapper.sumDailySalesSince(startDate.atStartOfDay());
+        } catch (Exception e) {
+            log.error("重建每日销量失败，沿用内存中的数据", e);
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<Long, LongAdder> todaySales = dailySales.computeIfAbsent(today, key -> new ConcurrentHashMap<>());
+        Map<LocalDate, Map<Long, LongAdder>> rebuilt = new ConcurrentHashMap<>();
+        for (Map<String, Object> row : rows) {
+            LocalDate salesDate = LocalDate.parse(row.get("salesDate").toString());
+            Long productId = ((Number) row.get("productId")).longValue();
+            long quantity = ((Number) row.get("quantity")).longValue();
+            if (!salesDate.isBefore(today)) {
+                if (!todayLoaded) {
+                    todaySales.computeIfAbsent(productId, key -> new LongAdder()).add(quantity);
+                }
+                continue;
+            }
+            rebuilt.computeIfAbsent(salesDate, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(productId, key -> new LongAdder()).add(quantity);
+        }
+        // 保留当天的计数器实例，重建期间记录的销量直接累加在其中
+        rebuilt.put(today, todaySales);
+        dailySales = rebuilt;
+        todayLoaded = true;
+        refreshRanking();
+        log.info("每日销量重建完成，记录数量：{}", rows.size());
+    }
+
+    /**
+     * 应用关闭前写回剩余的销量
+     */
+    @PreDestroy
+    public void shutdown() {
+        writePendingDeltas();
+    }
+
+    /**
+     * 按商品ID升序分批写回销量变化
+     */
+    private void writePendingDeltas() {
+        if (pendingDeltas.isEmpty()) {
+            return;
+        }
+
+        TreeMap<Long, Long> deltas = new TreeMap<>(pendingDeltas.drain());
+
+        TreeMap<Long, Long> batch = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= BATCH_SIZE) {
+                writeBatch(batch);
+                batch = new TreeMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * 写回一批销量变化，失败时放回内存等待下次重试
+     */
+    private void writeBatch(TreeMap<Long, Long> batch) {
+        try {
+            productMapper.batchIncreaseSalesCount(batch);
+            log.debug("商品销量写回完成，商品数量：{}", batch.size());
+        } catch (Exception e) {
+            log.error("商品销量写回失败，稍后重试，商品数量：{}", batch.size(), e);
+            pendingDeltas.addAll(batch);
+            return;
+        }
+        syncSearchIndex(batch);
+    }
+
+    /**
+     * 搜索索引按销量排序：写回成功后从数据库重新读取销量并覆盖索引中的值，
+     * 不在索引上累加变化量，索引在写回前后重新读取过该商品时也不会重复计数
+     */
+    private void syncSearchIndex(Map<Long, Long> batch) {
+        try {
+            Map<Long, Long> salesCounts = new HashMap<>(batch.size() * 2);
+            for (Product product : productMapper.findSalesCounts(batch.keySet())) {
+                salesCounts.put(product.getProductId(), product.getSalesCount() != null ? product.getSalesCount() : 0L);
+            }
+            productSearchService.updateSalesCounts(salesCounts);
+        } catch (Exception e) {
+            // 销量已写回，索引中的销量在商品下次写回或刷新时校正
+            log.warn("同步搜索索引销量失败，商品数量：{}", batch.size(), e);
+        }
+    }
+
+    /**
+     * 淘汰过期的每日销量并重新计算两个窗口的排行
+     */
+    private void refreshRanking() {
+        LocalDate today = LocalDate.now();
+        dailySales.keySet().removeIf(date -> date.isBefore(today.minusDays(LONG_WINDOW_DAYS - 1)));
+
+        Map<Long, Long> shortWindowTotals = new HashMap<>();
+        Map<Long, Long> longWindowTotals = new HashMap<>();
+        LocalDate shortWindowStart = today.minusDays(SHORT_WINDOW_DAYS - 1);
+        for (Map.Entry<LocalDate, Map<Long, LongAdder>> dayEntry : dailySales.entrySet()) {
+            boolean inShortWindow = !dayEntry.getKey().isBefore(shortWindowStart);
+            for (Map.Entry<Long, LongAdder> entry : dayEntry.getValue().entrySet()) {
+                long quantity = entry.getValue().sum();
+                longWindowTotals.merge(entry.getKey(), quantity, Long::sum);
+                if (inShortWindow) {
+                    shortWindowTotals.merge(entry.getKey(), quantity, Long::sum);
+                }
+            }
+        }
+        shortWindowRanking = topN(shortWindowTotals);
+        longWindowRanking = topN(longWindowTotals);
+    }
+
+    /**
+     * 取销量最高的前N个商品（小顶堆）
+     */
+    private List<Long> topN(Map<Long, Long> totals) {
+        PriorityQueue<Map.Entry<Long, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Long> entry : totals.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            heap.offer(entry);
+            if (heap.size() > rankingSize) {
+                heap.poll();
+            }
+        }
+        List<Long> ranking = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ranking.add(heap.poll().getKey());
+        }
+        Collections.reverse(ranking);
+        return Collections.unmodifiableList(ranking);
+    }
+}
@@ -0,0 +1,945 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.dto.ProductQueryDTO;
+import com.jingdong.entity.Product;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.CategoryService;
+import com.jingdong.service.ProductSearchService;
+import com.jingdong.service.StockReservationService;
+import com.jingdong.utils.SearchTokenizer;
+import com.jingdong.vo.ProductFacetVO;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品搜索服务实现类
+ * 在进程内为在售商品的名称、品牌、副标题建立倒排索引（中文二元组 + 英文单词），
+ * 查询时从最短的倒排表开始求交集，按字段权重计算相关度，再按销量排序，只保留当前页需要的前K个；
+ * 同时按品牌、分类、价格区间、推荐/热销/新品标识为商品序号建立位图，多条件筛选和分面统计都是位图求交；
+ * 启动后全量构建索引，之后按update_time增量刷新，索引字段未变化的商品只同步销量；刷新到的变更商品同步调整分类商品数量，上下架时使可售库存缓存失效；
+ * 分类商品数量的基准也由索引统计发布，基准与增量调整在同一把锁下衔接，不会重复计数
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService {
+
+    /**
+     * 字段标记：商品名称
+     */
+    private static final byte FIELD_NAME = 1;
+
+    /**
+     * 字段标记：品牌
+     */
+    private static final byte FIELD_BRAND = 2;
+
+    /**
+     * 字段标记：副标题
+     */
+    private static final byte FIELD_SUBTITLE = 4;
+
+    /**
+     * 每次从数据库加载的商品数量
+     */
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    /**
+     * 增量刷新时回看的秒数，覆盖提交较晚、更新时间早于水位线的变更
+     */
+    private static final long REFRESH_LOOKBACK_SECONDS = 5;
+
+    /**
+     * FNV-1a 64位哈希初始值（用于索引字段指纹）
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64位哈希乘数
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    /**
+     * 是否启用索引搜索（关闭时全部退回数据库查询）
+     */
+    @Value("${mall.product-search.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 价格区间分界点（元，升序）
+     */
+    @Value("${mall.product-search.price-buckets:100,500,1000,3000,5000}")
+    private BigDecimal[] priceBuckets;
+
+    /**
+     * 当前索引（全量构建完成前为空）
+     */
+    private volatile SearchIndex index;
+
+    /**
+     * 增量刷新水位线：已处理的最大更新时间
+     */
+    private LocalDateTime watermark;
+
+    /**
+     * 按筛选条件查询在售商品并统计各维度的商品数量
+     */
+    @Override
+    public FacetResult query(ProductQueryDTO productQueryDTO, int offset, int limit) {
+        SearchIndex currentIndex = index;
+        if (!enabled || currentIndex == null) {
+            return null;
+        }
+        Set<String> tokens = null;
+        if (StringUtils.hasText(productQueryDTO.getKeyword())) {
+            tokens = resolveTokens(productQueryDTO.getKeyword());
+            if (tokens == null) {
+                return null;
+            }
+        }
+        // 分类筛选包含所有子分类
+        Set<Long> categoryIds = productQueryDTO.getCategoryId() != null
+                ? categoryService.getDescendantIds(productQueryDTO.getCategoryId()) : null;
+        return currentIndex.query(tokens, productQueryDTO, categoryIds, offset, limit);
+    }
+
+    /**
+     * 定时增量刷新索引，首次执行时全量构建
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.product-search.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (index == null) {
+                buildFullIndex();
+            } else {
+                refreshChangedProducts();
+            }
+        } catch (Exception e) {
+            log.error("商品搜索索引刷新失败", e);
+        }
+    }
+
+    /**
+     * 同步商品销量
+     */
+    @Override
+    public void updateSalesCounts(Map<Long, Long> salesCounts) {
+        SearchIndex currentIndex = index;
+        if (currentIndex != null) {
+            currentIndex.updateSalesCounts(salesCounts);
+        }
+    }
+
+    /**
+     * 按索引发布各分类直属的在售商品数量（与增量刷新持有同一把锁）
+     */
+    @Override
+    public synchronized boolean publishCategoryCounts() {
+        SearchIndex currentIndex = index;
+        if (!enabled || currentIndex == null) {
+            return false;
+        }
+        categoryService.resetProductCounts(currentIndex.categoryCounts());
+        return true;
+    }
+
+    /**
+     * 将关键词切分为词项，无法用索引匹配时返回null
+     */
+    private Set<String> resolveTokens(String keyword) {
+        Set<String> tokens = SearchTokenizer.tokenize(keyword);
+        if (tokens.isEmpty() || tokens.stream().anyMatch(SearchTokenizer::isSingleHan)) {
+            // 单个汉字无法用二元组索引匹配，交给数据库处理
+            return null;
+        }
+        return tokens;
+    }
+
+    /**
+     * 按商品ID分批全量构建索引，构建完成后整体替换
+     */
+    private void buildFullIndex() {
+        long startTime = System.currentTimeMillis();
+        long[] bucketBounds = new long[priceBuckets.length];
+        for (int i = 0; i < priceBuckets.length; i++) {
+            bucketBounds[i] = toCents(priceBuckets[i]);
+        }
+        Arrays.sort(bucketBounds);
+
+        SearchIndex newIndex = new SearchIndex(bucketBounds);
+        LocalDateTime maxUpdateTime = null;
+        long afterProductId = 0;
+        while (true) {
+            List<Product> products = productMapper.findForSearchIndex(afterProductId, LOAD_BATCH_SIZE);
+            for (Product product : products) {
+                newIndex.put(product);
+                maxUpdateTime = max(maxUpdateTime, product.getUpdateTime());
+            }
+            if (products.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            afterProductId = products.get(products.size() - 1).getProductId();
+        }
+        newIndex.optimize();
+        watermark = maxUpdateTime != null ? maxUpdateTime : LocalDateTime.now();
+        index = newIndex;
+        // 之后的增量刷新以这次统计为基准调整分类商品数量
+        publishCategoryCounts();
+        log.info("商品搜索索引构建完成，商品数量：{}，词项数量：{}，耗时：{}ms",
+                newIndex.documentCount(), newIndex.termCount(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 按更新时间增量刷新变更的商品
+     */
+    private void refreshChangedProducts() {
+        LocalDateTime cursorTime = watermark.minusSeconds(REFRESH_LOOKBACK_SECONDS);
+        long cursorProductId = 0;
+        LocalDateTime maxUpdateTime = watermark;
+        int changed = 0;
+        List<Long> onSaleChangedIds = new ArrayList<>();
+        while (true) {
+            List<Product> products = productMapper.findUpdatedSince(cursorTime, cursorProductId, LOAD_BATCH_SIZE);
+            for (Product product : products) {
+                Long oldCategoryId = index.categoryOf(product.getProductId());
+                if (index.put(product)) {
+                    Long newCategoryId = index.categoryOf(product.getProductId());
+                    // 上下架、删除或换分类时同步分类商品数量
+                    categoryService.onProductCategoryChanged(oldCategoryId, newCategoryId);
+                    if ((oldCategoryId == null) != (newCategoryId == null)) {
+                        onSaleChangedIds.add(product.getProductId());
+                    }
+                    changed++;
+                }
+                maxUpdateTime = max(maxUpdateTime, product.getUpdateTime());
+            }
+            if (products.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            Product last = products.get(products.size() - 1);
+            cursorTime = last.getUpdateTime();
+            cursorProductId = last.getProductId();
+        }
+        watermark = maxUpdateTime;
+        // 上下架会改变可售库存（下架商品按0预热），使预占服务中的可售库存缓存失效
+        stockReservationService.invalidate(onSaleChangedIds);
+        if (changed > 0) {
+            log.debug("商品搜索索引增量刷新完成，变更商品数量：{}", changed);
+        }
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    /**
+     * 金额转换为分
+     */
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue();
+    }
+
+    /**
+     * 倒排表：按文档序号升序保存，同时记录词项出现的字段
+     */
+    private static class PostingList {
+
+        private int[] docs = new int[4];
+
+        private byte[] fields = new byte[4];
+
+        private int size;
+
+        void put(int doc, byte field) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                fields[position] = field;
+                return;
+            }
+            position = -position - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            System.arraycopy(fields, position, fields, position + 1, size - position);
+            docs[position] = doc;
+            fields[position] = field;
+            size++;
+        }
+
+        void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            System.arraycopy(fields, position + 1, fields, position, size - position - 1);
+            size--;
+        }
+
+        /**
+         * 从from位置开始查找文档，返回位置，不存在时返回负数（-(插入点) - 1）
+         */
+        int find(int doc, int from) {
+            return Arrays.binarySearch(docs, from, size, doc);
+        }
+    }
+
+    /**
+     * 关键词命中的文档（序号升序）及相关度
+     */
+    private static class KeywordMatches {
+
+        private final int[] docs;
+
+        private final int[] scores;
+
+        private final int size;
+
+        KeywordMatches(int[] docs, int[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        int scoreOf(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            return position >= 0 ? scores[position] : 0;
+        }
+
+        RoaringBitmap toBitmap() {
+            return RoaringBitmap.bitmapOf(Arrays.copyOf(docs, size));
+        }
+    }
+
+    /**
+     * 商品索引：倒排表 + 位图 + 按文档序号存放的排序字段，增量更新与查询通过读写锁隔离；
+     * 位图使用RoaringBitmap，按65536个序号一段分配容器，稀疏的品牌、分类位图只占用与其商品数量相当的内存
+     */
+    private static class SearchIndex {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, PostingList> postings = new HashMap<>();
+
+        /**
+         * 商品ID -> 文档序号
+         */
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+
+        /**
+         * 已释放的文档序号，新商品优先复用
+         */
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        /**
+         * 价格区间分界点（分，升序）
+         */
+        private final long[] bucketBounds;
+
+        /**
+         * 在售商品位图
+         */
+        private final RoaringBitmap onSaleBits = new RoaringBitmap();
+
+        private final RoaringBitmap recommendBits = new RoaringBitmap();
+
+        private final RoaringBitmap hotBits = new RoaringBitmap();
+
+        private final RoaringBitmap newBits = new RoaringBitmap();
+
+        private final Map<String, RoaringBitmap> brandBits = new HashMap<>();
+
+        private final Map<Long, RoaringBitmap> categoryBits = new HashMap<>();
+
+        /**
+         * 各价格区间的商品位图
+         */
+        private final RoaringBitmap[] priceBucketBits;
+
+        private long[] productIds = new long[1024];
+
+        private long[] categoryIds = new long[1024];
+
+        private long[] salesCounts = new long[1024];
+
+        private long[] createTimes = new long[1024];
+
+        /**
+         * 价格（分）
+         */
+        private long[] prices = new long[1024];
+
+        private int[] sortOrders = new int[1024];
+
+        private String[] brands = new String[1024];
+
+        /**
+         * 各文档索引字段的指纹（不含销量），增量刷新时据此跳过未变化的商品
+         */
+        private long[] fingerprints = new long[1024];
+
+        /**
+         * 各文档的词项（删除或更新时用于清理倒排表）
+         */
+        private String[][] documentTokens = new String[1024][];
+
+        private int nextOrdinal;
+
+        SearchIndex(long[] bucketBounds) {
+            this.bucketBounds = bucketBounds;
+            this.priceBucketBits = new RoaringBitmap[bucketBounds.length + 1];
+            for (int i = 0; i < priceBucketBits.length; i++) {
+                priceBucketBits[i] = new RoaringBitmap();
+            }
+        }
+
+        /**
+         * 写入或更新商品；不在售的商品从索引中移除
+         * 已在索引中且索引字段指纹未变化时只同步销量，不重新切词，
+         * 增量刷新的回看窗口反复读到同一商品时不会重复重建文档
+         * 
+         * @return 索引是否发生变化（仅销量变化时返回false）
+         */
+        boolean put(Product product) {
+            boolean onSale = Integer.valueOf(1).equals(product.getStatus())
+                    && !Integer.valueOf(1).equals(product.getDeleted());
+
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(product.getProductId());
+                if (!onSale) {
+                    if (ordinal == null) {
+                        return false;
+                    }
+                    removeDocument(ordinal);
+                    ordinals.remove(product.getProductId());
+                    freeOrdinals.push(ordinal);
+                    return true;
+                }
+                long fingerprint = fingerprint(product);
+                if (ordinal != null && fingerprints[ordinal] == fingerprint) {
+                    salesCounts[ordinal] = product.getSalesCount() != null ? product.getSalesCount() : 0;
+                    return false;
+                }
+                if (ordinal != null) {
+                    removeDocument(ordinal);
+                } else {
+                    ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+                    ensureCapacity(ordinal + 1);
+                    ordinals.put(product.getProductId(), ordinal);
+                }
+
+                Map<String, Byte> tokenFields = new LinkedHashMap<>();
+                addTokens(tokenFields, product.getProductName(), FIELD_NAME);
+                addTokens(tokenFields, product.getBrand(), FIELD_BRAND);
+                addTokens(tokenFields, product.getSubtitle(), FIELD_SUBTITLE);
+                String[] tokens = new String[tokenFields.size()];
+                int i = 0;
+                for (Map.Entry<String, Byte> entry : tokenFields.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), key -> new PostingList()).put(ordinal, entry.getValue());
+                    tokens[i++] = entry.getKey();
+                }
+
+                productIds[ordinal] = product.getProductId();
+                categoryIds[ordinal] = product.getCategoryId() != null ? product.getCategoryId() : 0;
+                salesCounts[ordinal] = product.getSalesCount() != null ? product.getSalesCount() : 0;
+                createTimes[ordinal] = toEpochMilli(product.getCreateTime());
+                prices[ordinal] = product.getPrice() != null ? toCents(product.getPrice()) : 0;
+                sortOrders[ordinal] = product.getSortOrder() != null ? product.getSortOrder() : 0;
+                brands[ordinal] = StringUtils.hasText(product.getBrand()) ? product.getBrand().trim() : null;
+                documentTokens[ordinal] = tokens;
+                fingerprints[ordinal] = fingerprint;
+
+                onSaleBits.add(ordinal);
+                setFlag(recommendBits, ordinal, product.getIsRecommend());
+                setFlag(hotBits, ordinal, product.getIsHot());
+                setFlag(newBits, ordinal, product.getIsNew());
+                if (brands[ordinal] != null) {
+                    brandBits.computeIfAbsent(brands[ordinal], key -> new RoaringBitmap()).add(ordinal);
+                }
+                categoryBits.computeIfAbsent(categoryIds[ordinal], key -> new RoaringBitmap()).add(ordinal);
+                priceBucketBits[bucketOf(prices[ordinal])].add(ordinal);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void updateSalesCounts(Map<Long, Long> newSalesCounts) {
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, Long> entry : newSalesCounts.entrySet()) {
+                    Integer ordinal = ordinals.get(entry.getKey());
+                    if (ordinal != null) {
+                        salesCounts[ordinal] = entry.getValue();
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        FacetResult query(Set<String> tokens, ProductQueryDTO productQueryDTO, Set<Long> categoryIds,
+                          int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                // 与分面维度无关的条件：在售、关键词、推荐/热销/新品标识
+                RoaringBitmap base = onSaleBits.clone();
+                KeywordMatches matches = null;
+                if (tokens != null) {
+                    matches = matchKeyword(tokens);
+                    base.and(matches.toBitmap());
+                }
+                applyFlag(base, recommendBits, productQueryDTO.getIsRecommend());
+                applyFlag(base, hotBits, productQueryDTO.getIsHot());
+                applyFlag(base, newBits, productQueryDTO.getIsNew());
+
+                // 分面维度各自的筛选位图（为空表示不筛选）
+                RoaringBitmap brandFilter = null;
+                if (StringUtils.hasText(productQueryDTO.getBrand())) {
+                    brandFilter = brandBits.getOrDefault(productQueryDTO.getBrand().trim(), new RoaringBitmap());
+                }
+                RoaringBitmap categoryFilter = null;
+                if (categoryIds != null) {
+                    categoryFilter = new RoaringBitmap();
+                    for (Long categoryId : categoryIds) {
+                        RoaringBitmap bits = categoryBits.get(categoryId);
+                        if (bits != null) {
+                            categoryFilter.or(bits);
+                        }
+                    }
+                }
+                RoaringBitmap priceFilter = null;
+                if (productQueryDTO.getMinPrice() != null || productQueryDTO.getMaxPrice() != null) {
+                    priceFilter = priceRange(base, productQueryDTO.getMinPrice(), productQueryDTO.getMaxPrice());
+                }
+
+                RoaringBitmap hits = and(base, brandFilter, categoryFilter, priceFilter);
+                ProductFacetVO facets = new ProductFacetVO();
+                facets.setTotal((long) hits.getCardinality());
+                facets.setBrands(countBrands(and(base, categoryFilter, priceFilter)));
+                facets.setCategories(countCategories(and(base, brandFilter, priceFilter)));
+                facets.setPriceRanges(countPriceRanges(and(base, brandFilter, categoryFilter)));
+
+                List<Long> productIds = topK(hits, comparator(productQueryDTO, matches), offset, limit);
+                return new FacetResult(hits.getCardinality(), productIds, facets);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 在售商品所在的分类，商品不在索引中时返回null
+         */
+        Long categoryOf(Long productId) {
+            lock.readLock().lock();
+            try {
+                Integer ordinal = ordinals.get(productId);
+                return ordinal != null ? categoryIds[ordinal] : null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 各分类直属的在售商品数量
+         */
+        Map<Long, Long> categoryCounts() {
+            lock.readLock().lock();
+            try {
+                Map<Long, Long> counts = new HashMap<>(categoryBits.size() * 2);
+                categoryBits.forEach((categoryId, bits) -> counts.put(categoryId, (long) bits.getCardinality()));
+                return counts;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int documentCount() {
+            return ordinals.size();
+        }
+
+        int termCount() {
+            return postings.size();
+        }
+
+        /**
+         * 全量构建完成后压缩位图：连续的序号段改用行程编码容器
+         */
+        void optimize() {
+            lock.writeLock().lock();
+            try {
+                onSaleBits.runOptimize();
+                recommendBits.runOptimize();
+                hotBits.runOptimize();
+                newBits.runOptimize();
+                brandBits.values().forEach(RoaringBitmap::runOptimize);
+                categoryBits.values().forEach(RoaringBitmap::runOptimize);
+                for (RoaringBitmap bits : priceBucketBits) {
+                    bits.runOptimize();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 遍历最短的倒排表，在其余倒排表中向后二分查找，累加各字段权重作为相关度
+         */
+        private KeywordMatches matchKeyword(Set<String> tokens) {
+            List<PostingList> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                PostingList postingList = postings.get(token);
+                if (postingList == null || postingList.size == 0) {
+                    return new KeywordMatches(new int[0], new int[0], 0);
+                }
+                lists.add(postingList);
+            }
+            lists.sort(Comparator.comparingInt(postingList -> postingList.size));
+
+            PostingList shortest = lists.get(0);
+            int[] docs = new int[shortest.size];
+            int[] scores = new int[shortest.size];
+            int size = 0;
+            int[] cursors = new int[lists.size()];
+            outer:
+            for (int i = 0; i < shortest.size; i++) {
+                int doc = shortest.docs[i];
+                int score = fieldWeight(shortest.fields[i]);
+                for (int j = 1; j < lists.size(); j++) {
+                    PostingList other = lists.get(j);
+                    int position = other.find(doc, cursors[j]);
+                    if (position < 0) {
+                        cursors[j] = -position - 1;
+                        if (cursors[j] >= other.size) {
+                            break outer;
+                        }
+                        continue outer;
+                    }
+                    cursors[j] = position + 1;
+                    score += fieldWeight(other.fields[position]);
+                }
+                docs[size] = doc;
+                scores[size] = score;
+                size++;
+            }
+            return new KeywordMatches(docs, scores, size);
+        }
+
+        /**
+         * 标识筛选：1-必须带标识，0-必须不带标识，为空不筛选
+         */
+        private void applyFlag(RoaringBitmap bits, RoaringBitmap flagBits, Integer value) {
+            if (value == null) {
+                return;
+            }
+            if (value == 1) {
+                bits.and(flagBits);
+            } else {
+                bits.andNot(flagBits);
+            }
+        }
+
+        /**
+         * 价格区间筛选：完全落在区间内的价格区间直接取位图，跨边界的区间逐个比较价格
+         */
+        private RoaringBitmap priceRange(RoaringBitmap candidates, BigDecimal minPrice, BigDecimal maxPrice) {
+            long min = minPrice != null ? toCents(minPrice) : Long.MIN_VALUE;
+            long max = maxPrice != null ? toCents(maxPrice) : Long.MAX_VALUE;
+            RoaringBitmap result = new RoaringBitmap();
+            if (min > max) {
+                return result;
+            }
+            int fromBucket = bucketOf(min);
+            int toBucket = bucketOf(max);
+            for (int bucket = fromBucket; bucket <= toBucket; bucket++) {
+                long bucketMin = bucket == 0 ? Long.MIN_VALUE : bucketBounds[bucket - 1];
+                long bucketMax = bucket == bucketBounds.length ? Long.MAX_VALUE : bucketBounds[bucket] - 1;
+                if (bucketMin >= min && bucketMax <= max) {
+                    result.or(priceBucketBits[bucket]);
+                    continue;
+                }
+                IntIterator partial = RoaringBitmap.and(priceBucketBits[bucket], candidates).getIntIterator();
+                while (partial.hasNext()) {
+                    int doc = partial.next();
+                    if (prices[doc] >= min && prices[doc] <= max) {
+                        result.add(doc);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private List<ProductFacetVO.BrandFacet> countBrands(RoaringBitmap bits) {
+            Map<String, Integer> counts = new HashMap<>();
+            IntIterator iterator = bits.getIntIterator();
+            while (iterator.hasNext()) {
+                int doc = iterator.next();
+                if (brands[doc] != null) {
+                    counts.merge(brands[doc], 1, Integer::sum);
+                }
+            }
+            List<ProductFacetVO.BrandFacet> facets = new ArrayList<>(counts.size());
+            counts.forEach((brand, count) -> facets.add(new ProductFacetVO.BrandFacet(brand, count)));
+            facets.sort(Comparator.comparing(ProductFacetVO.BrandFacet::getCount).reversed()
+                    .thenComparing(ProductFacetVO.BrandFacet::getBrand));
+            return facets;
+        }
+
+        private List<ProductFacetVO.CategoryFacet> countCategories(RoaringBitmap bits) {
+            Map<Long, Integer> counts = new HashMap<>();
+            IntIterator iterator = bits.getIntIterator();
+            while (iterator.hasNext()) {
+                counts.merge(categoryIds[iterator.next()], 1, Integer::sum);
+            }
+            List<ProductFacetVO.CategoryFacet> facets = new ArrayList<>(counts.size());
+            counts.forEach((categoryId, count) -> facets.add(new ProductFacetVO.CategoryFacet(categoryId, null, count)));
+            facets.sort(Comparator.comparing(ProductFacetVO.CategoryFacet::getCount).reversed()
+                    .thenComparing(ProductFacetVO.CategoryFacet::getCategoryId));
+            return facets;
+        }
+
+        private List<ProductFacetVO.PriceFacet> countPriceRanges(RoaringBitmap bits) {
+            List<ProductFacetVO.PriceFacet> facets = new ArrayList<>(priceBucketBits.length);
+            for (int bucket = 0; bucket < priceBucketBits.length; bucket++) {
+                int count = RoaringBitmap.andCardinality(priceBucketBits[bucket], bits);
+                if (count == 0) {
+                    continue;
+                }
+                BigDecimal minPrice = bucket == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(bucketBounds[bucket - 1], 2);
+                BigDecimal maxPrice = bucket == bucketBounds.length ? null : BigDecimal.valueOf(bucketBounds[bucket], 2);
+                facets.add(new ProductFacetVO.PriceFacet(minPrice, maxPrice, count));
+            }
+            return facets;
+        }
+
+        /**
+         * 排序规则（越靠前越大）：指定了排序字段时按字段排序，否则有关键词按相关度和销量，
+         * 无关键词按排序号和上架时间（与数据库查询一致），最后按商品ID
+         */
+        private Comparator<Integer> comparator(ProductQueryDTO productQueryDTO, KeywordMatches matches) {
+            boolean ascending = "asc".equalsIgnoreCase(productQueryDTO.getSortOrder());
+            Comparator<Integer> comparator;
+            if ("price".equals(productQueryDTO.getSortField())) {
+                comparator = Comparator.comparingLong(doc -> prices[doc]);
+            } else if ("sales".equals(productQueryDTO.getSortField())) {
+                comparator = Comparator.comparingLong(doc -> salesCounts[doc]);
+            } else if ("time".equals(productQueryDTO.getSortField())) {
+                comparator = Comparator.comparingLong(doc -> createTimes[doc]);
+            } else if (matches != null) {
+                return Comparator.<Integer>comparingInt(matches::scoreOf)
+                        .thenComparingLong(doc -> salesCounts[doc])
+                        .thenComparingLong(doc -> productIds[doc]);
+            } else {
+                return Comparator.<Integer>comparingInt(doc -> -sortOrders[doc])
+                        .thenComparingLong(doc -> createTimes[doc])
+                        .thenComparingLong(doc -> productIds[doc]);
+            }
+            if (ascending) {
+                comparator = comparator.reversed();
+            }
+            return comparator.thenComparingLong(doc -> productIds[doc]);
+        }
+
+        /**
+         * 用小顶堆保留排在最前的offset + limit个文档，返回当前页的商品ID
+         */
+        private List<Long> topK(RoaringBitmap hits, Comparator<Integer> comparator, int offset, int limit) {
+            int k = offset + limit;
+            if (k <= 0 || hits.isEmpty()) {
+                return Collections.emptyList();
+            }
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(k, hits.getCardinality()), comparator);
+            IntIterator iterator = hits.getIntIterator();
+            while (iterator.hasNext()) {
+                int doc = iterator.next();
+                if (heap.size() < k) {
+                    heap.offer(doc);
+                } else if (comparator.compare(doc, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.offer(doc);
+                }
+            }
+
+            List<Long> ranked = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                ranked.add(productIds[heap.poll()]);
+            }
+            Collections.reverse(ranked);
+            return offset < ranked.size() ? new ArrayList<>(ranked.subList(offset, ranked.size())) : Collections.emptyList();
+        }
+
+        private RoaringBitmap and(RoaringBitmap base, RoaringBitmap... filters) {
+            RoaringBitmap result = base.clone();
+            for (RoaringBitmap filter : filters) {
+                if (filter != null) {
+                    result.and(filter);
+                }
+            }
+            return result;
+        }
+
+        private int bucketOf(long price) {
+            int position = Arrays.binarySearch(bucketBounds, price);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+
+        private int fieldWeight(byte fields) {
+            int weight = 0;
+            if ((fields & FIELD_NAME) != 0) {
+                weight += 4;
+            }
+            if ((fields & FIELD_BRAND) != 0) {
+                weight += 2;
+            }
+            if ((fields & FIELD_SUBTITLE) != 0) {
+                weight += 1;
+            }
+            return weight;
+        }
+
+        private long toEpochMilli(LocalDateTime time) {
+            return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        }
+
+        private void addTokens(Map<String, Byte> tokenFields, String text, byte field) {
+            for (String token : SearchTokenizer.tokenize(text)) {
+                tokenFields.merge(token, field, (a, b) -> (byte) (a | b));
+            }
+        }
+
+        private void removeDocument(int ordinal) {
+            String[] tokens = documentTokens[ordinal];
+            if (tokens != null) {
+                for (String token : tokens) {
+                    PostingList postingList = postings.get(token);
+                    if (postingList != null) {
+                        postingList.remove(ordinal);
+                        if (postingList.size == 0) {
+                            postings.remove(token);
+                        }
+                    }
+                }
+                documentTokens[ordinal] = null;
+            }
+
+            onSaleBits.remove(ordinal);
+            recommendBits.remove(ordinal);
+            hotBits.remove(ordinal);
+            newBits.remove(ordinal);
+            clearBit(brandBits, brands[ordinal], ordinal);
+            clearBit(categoryBits, categoryIds[ordinal], ordinal);
+            priceBucketBits[bucketOf(prices[ordinal])].remove(ordinal);
+            brands[ordinal] = null;
+        }
+
+        /**
+         * 标识为1时置位，否则清除
+         */
+        private void setFlag(RoaringBitmap bits, int ordinal, Integer value) {
+            if (Integer.valueOf(1).equals(value)) {
+                bits.add(ordinal);
+            } else {
+                bits.remove(ordinal);
+            }
+        }
+
+        private <K> void clearBit(Map<K, RoaringBitmap> bitsMap, K key, int ordinal) {
+            if (key == null) {
+                return;
+            }
+            RoaringBitmap bits = bitsMap.get(key);
+            if (bits != null) {
+                bits.remove(ordinal);
+                if (bits.isEmpty()) {
+                    bitsMap.remove(key);
+                }
+            }
+        }
+
+        /**
+         * 计算索引字段的64位指纹（FNV-1a），字段之间以分隔值隔开
+         */
+        private long fingerprint(Product product) {
+            long hash = FNV_OFFSET_BASIS;
+            hash = mix(hash, product.getProductName());
+            hash = mix(hash, product.getBrand());
+            hash = mix(hash, product.getSubtitle());
+            hash = mix(hash, product.getCategoryId());
+            hash = mix(hash, product.getPrice() != null ? toCents(product.getPrice()) : null);
+            hash = mix(hash, product.getSortOrder());
+            hash = mix(hash, product.getIsRecommend());
+            hash = mix(hash, product.getIsHot());
+            hash = mix(hash, product.getIsNew());
+            return mix(hash, toEpochMilli(product.getCreateTime()));
+        }
+
+        private long mix(long hash, Object value) {
+            String text = value != null ? value.toString() : "\u0000";
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+            }
+            return (hash ^ 0x1F) * FNV_PRIME;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= productIds.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, productIds.length * 2);
+            productIds = Arrays.copyOf(productIds, newCapacity);
+            categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+            salesCounts = Arrays.copyOf(salesCounts, newCapacity);
+            createTimes = Arrays.copyOf(createTimes, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+            sortOrders = Arrays.copyOf(sortOrders, newCapacity);
+            brands = Arrays.copyOf(brands, newCapacity);
+            documentTokens = Arrays.copyOf(documentTokens, newCapacity);
+            fingerprints = Arrays.copyOf(fingerprints, newCapacity);
+        }
+    }
+}
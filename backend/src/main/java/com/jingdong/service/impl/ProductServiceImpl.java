@@ -0,0 +1,277 @@
+package com.jingdong.service.impl;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.jingdong.dto.ProductQueryDTO;
+import com.jingdong.entity.Product;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.CategoryService;
+import com.jingdong.service.ProductCacheService;
+import com.jingdong.service.ProductSalesService;
+import com.jingdong.service.ProductSearchService;
+import com.jingdong.service.ProductService;
+import com.jingdong.service.ProductTopListService;
+import com.jingdong.service.ProductViewCountService;
+import com.jingdong.service.StockService;
+import com.jingdong.vo.ProductFacetVO;
+import com.jingdong.vo.ProductVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 商品服务实现类
+ * 实现商品相关的业务逻辑
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductServiceImpl implements ProductService {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductViewCountService productViewCountService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductSalesService productSalesService;
+
+    @Autowired
+    private ProductTopListService productTopListService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * 分页查询商品列表
+     */
+    @Override
+    public IPage<ProductVO> getProductList(ProductQueryDTO productQueryDTO) {
+        log.info("分页查询商品列表，查询条件：{}", productQueryDTO);
+
+        Integer status = productQueryDTO.getStatus() != null ? productQueryDTO.getStatus() : 1;
+        // 查询在售商品时优先走内存索引
+        if (status == 1) {
+            IPage<ProductVO> indexPage = queryByIndex(productQueryDTO);
+            if (indexPage != null) {
+                return indexPage;
+            }
+        }
+
+        Page<Product> page = new Page<>(productQueryDTO.getPageNum(), productQueryDTO.getPageSize());
+        Set<Long> categoryIds = productQueryDTO.getCategoryId() != null
+                ? categoryService.getDescendantIds(productQueryDTO.getCategoryId()) : null;
+        IPage<Product> productPage = productMapper.findProductPage(page, productQueryDTO, categoryIds, status);
+        return productPage.convert(this::convertToProductVO);
+    }
+
+    /**
+     * 获取商品详情
+     */
+    @Override
+    public ProductVO getProductDetail(Long productId) {
+        log.info("获取商品详情，商品ID：{}", productId);
+
+        // 两级缓存读取，缓存未命中时才查询数据库
+        Product product = productCacheService.getProduct(productId);
+        if (product == null) {
+            throw new BusinessException("商品不存在");
+        }
+
+        ProductVO productVO = convertToProductVO(product);
+        // 缓存的商品不含库存，单独读取当前库存
+        productVO.setStock(stockService.getStocks(Collections.singletonList(productId)).get(productId));
+        // 设置分类名称
+        productVO.setCategoryName(categoryService.getCategoryName(product.getCategoryId()));
+        // 加上尚未写回数据库的浏览量
+        int viewCount = product.getViewCount() != null ? product.getViewCount() : 0;
+        productVO.setViewCount((int) (viewCount + productViewCountService.getPendingCount(productId)));
+        return productVO;
+    }
+
+    /**
+     * 搜索商品
+     */
+    @Override
+    public IPage<ProductVO> searchProducts(ProductQueryDTO productQueryDTO) {
+        log.info("搜索商品，关键词：{}", productQueryDTO.getKeyword());
+
+        if (!StringUtils.hasText(productQueryDTO.getKeyword())) {
+            throw new BusinessException("搜索关键词不能为空");
+        }
+        IPage<ProductVO> indexPage = queryByIndex(productQueryDTO);
+        if (indexPage != null) {
+            return indexPage;
+        }
+
+        // 索引未就绪或关键词无法用索引匹配时退回数据库模糊查询
+        Page<Product> page = new Page<>(productQueryDTO.getPageNum(), productQueryDTO.getPageSize());
+        IPage<Product> productPage = productMapper.searchProducts(page, productQueryDTO.getKeyword().trim());
+        return productPage.convert(this::convertToProductVO);
+    }
+
+    /**
+     * 获取商品筛选面板
+     */
+    @Override
+    public ProductFacetVO getProductFacets(ProductQueryDTO productQueryDTO) {
+        ProductSearchService.FacetResult result = productSearchService.query(productQueryDTO, 0, 0);
+        if (result == null) {
+            // 索引未就绪或关键词无法用索引匹配，不提供分面统计
+            ProductFacetVO facetVO = new ProductFacetVO();
+            facetVO.setBrands(Collections.emptyList());
+            facetVO.setPriceRanges(Collections.emptyList());
+            facetVO.setCategories(Collections.emptyList());
+            return facetVO;
+        }
+
+        ProductFacetVO facetVO = result.getFacets();
+        facetVO.getCategories().forEach(facet -> facet.setCategoryName(categoryService.getCategoryName(facet.getCategoryId())));
+        return facetVO;
+    }
+
+    /**
+     * 获取推荐商品
+     */
+    @Override
+    public List<ProductVO> getRecommendProducts(Integer limit) {
+        return convertToProductVOList(productTopListService.getTopList(ProductTopListService.ListType.RECOMMEND, limit));
+    }
+
+    /**
+     * 获取热销商品
+     */
+    @Override
+    public List<ProductVO> getHotProducts(Integer limit) {
+        return convertToProductVOList(productTopListService.getTopList(ProductTopListService.ListType.HOT, limit));
+    }
+
+    /**
+     * 获取滚动窗口销量排行
+     */
+    @Override
+    public List<ProductVO> getSalesRanking(Integer days, Integer limit) {
+        List<Long> productIds = productSalesService.getTopProductIds(days, limit);
+        if (productIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 按排行顺序返回，跳过已下架或已删除的商品
+        Map<Long, Product> productMap = productMapper.findByProductIds(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        List<ProductVO> productVOs = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            Product product = productMap.get(productId);
+            if (product != null && Integer.valueOf(1).equals(product.getStatus())
+                    && !Integer.valueOf(1).equals(product.getDeleted())) {
+                productVOs.add(convertToProductVO(product));
+            }
+        }
+        return productVOs;
+    }
+
+    /**
+     * 获取新品商品
+     */
+    @Override
+    public List<ProductVO> getNewProducts(Integer limit) {
+        return convertToProductVOList(productTopListService.getTopList(ProductTopListService.ListType.NEW, limit));
+    }
+
+    /**
+     * 根据分类ID获取商品列表
+     */
+    @Override
+    public List<ProductVO> getProductsByCategory(Long categoryId, Integer limit) {
+        // 包含所有子分类的商品
+        return convertToProductVOList(productMapper.findByCategoryIds(categoryService.getDescendantIds(categoryId), limit));
+    }
+
+    /**
+     * 增加商品浏览量（内存累加，定时批量写回）
+     */
+    @Override
+    public void increaseViewCount(Long productId) {
+        productViewCountService.increase(productId);
+    }
+
+    /**
+     * 通过内存索引分页查询在售商品，索引不可用时返回null
+     */
+    private IPage<ProductVO> queryByIndex(ProductQueryDTO productQueryDTO) {
+        int pageNum = productQueryDTO.getPageNum();
+        int pageSize = productQueryDTO.getPageSize();
+        ProductSearchService.FacetResult result = productSearchService.query(productQueryDTO,
+                (pageNum - 1) * pageSize, pageSize);
+        if (result == null) {
+            return null;
+        }
+
+        Page<ProductVO> page = new Page<>(pageNum, pageSize, result.getTotal());
+        List<Long> productIds = result.getProductIds();
+        if (productIds.isEmpty()) {
+            page.setRecords(Collections.emptyList());
+            return page;
+        }
+        // 按索引排好的顺序返回
+        Map<Long, Product> productMap = productMapper.findByProductIds(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        List<ProductVO> productVOs = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            Product product = productMap.get(productId);
+            if (product != null) {
+                productVOs.add(convertToProductVO(product));
+            }
+        }
+        page.setRecords(productVOs);
+        return page;
+    }
+
+    /**
+     * 批量转换为商品VO
+     */
+    private List<ProductVO> convertToProductVOList(List<Product> products) {
+        return products.stream()
+                .map(this::convertToProductVO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 转换为商品VO
+     */
+    private ProductVO convertToProductVO(Product product) {
+        ProductVO productVO = new ProductVO();
+        BeanUtils.copyProperties(product, productVO);
+        
+        // 设置状态描述、库存标识和详情图片
+        productVO.setStatus(product.getStatus());
+        productVO.setStock(product.getStock());
+        productVO.setDetailImages(product.getDetailImages());
+        productVO.calculateDiscountRate();
+        
+        return productVO;
+    }
+}
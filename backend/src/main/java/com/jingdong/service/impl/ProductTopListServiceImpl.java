@@ -0,0 +1,189 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.ProductTopListService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品榜单服务实现类
+ * 每个榜单在内存中保存前N个商品的只读快照，读取时直接截取，不访问数据库；
+ * 快照过期后先返回旧数据，同时在后台线程异步刷新（stale-while-revalidate），
+ * 另有定时任务主动刷新，只有首次加载时才同步查询数据库
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductTopListServiceImpl implements ProductTopListService {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * 榜单容量（每个榜单保存的商品数量）
+     */
+    @Value("${mall.product-top-list.size:100}")
+    private int listSize;
+
+    /**
+     * 快照过期时间（毫秒），过期后读取会触发异步刷新
+     */
+    @Value("${mall.product-top-list.refresh-after-ms:60000}")
+    private long refreshAfterMillis;
+
+    /**
+     * 各榜单
+     */
+    private final Map<ListType, TopList> topLists = new EnumMap<>(ListType.class);
+
+    /**
+     * 异步刷新线程
+     */
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-top-list-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductTopListServiceImpl() {
+        for (ListType listType : ListType.values()) {
+            topLists.put(listType, new TopList(listType));
+        }
+    }
+
+    /**
+     * 获取榜单前limit个商品
+     */
+    @Override
+    public List<Product> getTopList(ListType listType, int limit) {
+        TopList topList = topLists.get(listType);
+        Snapshot snapshot = topList.snapshot;
+        if (snapshot == null) {
+            // 首次加载：同步查询，并发请求只查一次
+            snapshot = topList.loadIfAbsent();
+        } else if (System.currentTimeMillis() - snapshot.loadTime > refreshAfterMillis) {
+            // 已过期：先返回旧数据，后台刷新
+            topList.refreshAsync();
+        }
+        List<Product> products = snapshot.products;
+        return products.size() <= limit ? products : products.subList(0, limit);
+    }
+
+    /**
+     * 定时刷新全部榜单
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.product-top-list.refresh-interval-ms:60000}")
+    public void refreshAll() {
+        for (TopList topList : topLists.values()) {
+            topList.refreshAsync();
+        }
+    }
+
+    /**
+     * 关闭刷新线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 从数据库加载榜单
+     */
+    private List<Product> loadProducts(ListType listType) {
+        switch (listType) {
+            case RECOMMEND:
+                return productMapper.findRecommendProducts(listSize);
+            case HOT:
+                return productMapper.findHotProducts(listSize);
+            case NEW:
+                return productMapper.findNewProducts(listSize);
+            default:
+                throw new IllegalArgumentException("未知的榜单类型：" + listType);
+        }
+    }
+
+    /**
+     * 榜单快照（只读）
+     */
+    private static class Snapshot {
+
+        private final List<Product> products;
+
+        private final long loadTime;
+
+        Snapshot(List<Product> products, long loadTime) {
+            this.products = products;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * 单个榜单
+     */
+    private class TopList {
+
+        private final ListType listType;
+
+        private volatile Snapshot snapshot;
+
+        /**
+         * 是否正在刷新，保证同一榜单同时只有一个刷新任务
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        TopList(ListType listType) {
+            this.listType = listType;
+        }
+
+        synchronized Snapshot loadIfAbsent() {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+
+        void refreshAsync() {
+            if (!refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        snapshot = load();
+                    } catch (Exception e) {
+                        // 刷新失败继续使用旧数据
+                        log.error("刷新商品榜单失败，榜单：{}", listType, e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                refreshing.set(false);
+                log.warn("提交商品榜单刷新任务失败，榜单：{}", listType, e);
+            }
+        }
+
+        private Snapshot load() {
+            List<Product> products = Collections.unmodifiableList(loadProducts(listType));
+            log.debug("商品榜单已刷新，榜单：{}，商品数量：{}", listType, products.size());
+            return new Snapshot(products, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.ProductViewCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品浏览量服务实现类
+ * 每个商品一个LongAdder，浏览时只做内存累加，不再逐次更新热点商品行；
+ * 定时（或新增商品数超过上限时）用sumThenReset取走累计值，按商品ID升序分批写回，每批一条CASE语句；
+ * 写回时不删除累加器，避免并发浏览累加到已被摘下的累加器上而丢失，
+ * 只有商品数超过上限时才清理整个写回周期内没有浏览的商品
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class ProductViewCountServiceImpl implements ProductViewCountService {
+
+    /**
+     * 每批写回的商品数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * 累加器数量上限：上次写回后新增的商品超过该值时立即写回，累加器总数超过该值时清理没有浏览的商品
+     */
+    @Value("${mall.product-view.max-pending-keys:10000}")
+    private int maxPendingKeys;
+
+    /**
+     * 待写回的浏览量（商品ID -> 累加器）
+     */
+    private final Map<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 上次写回后保留的累加器数量，新增的商品超过上限时才立即写回
+     */
+    private volatile int retainedKeys;
+
+    /**
+     * 写回锁，保证同一时间只有一个线程写回
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 记录一次商品浏览
+     */
+    @Override
+    public void increase(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        pendingCounts.computeIfAbsent(productId, key -> new LongAdder()).increment();
+
+        // 上次写回后新增的商品过多时由当前线程写回，其他线程不等待
+        if (pendingCounts.size() - retainedKeys >= maxPendingKeys && flushLock.tryLock()) {
+            try {
+                doFlush();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 获取尚未写回数据库的浏览量
+     */
+    @Override
+    public long getPendingCount(Long productId) {
+        LongAdder adder = productId != null ? pendingCounts.get(productId) : null;
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * 定时把累加的浏览量写回数据库
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${mall.product-view.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 应用关闭前写回剩余的浏览量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void doFlush() {
+        if (pendingCounts.isEmpty()) {
+            return;
+        }
+
+        // 逐个商品取走累计值并清零，累加器保留，之后的浏览继续累加到同一个累加器
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        List<Long> idleProductIds = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pendingCounts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                deltas.put(entry.getKey(), count);
+            } else {
+                idleProductIds.add(entry.getKey());
+            }
+        }
+        if (pendingCounts.size() >= maxPendingKeys) {
+            evictIdle(idleProductIds, deltas);
+        }
+        retainedKeys = pendingCounts.size();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        TreeMap<Long, Long> batch = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= BATCH_SIZE) {
+                writeBatch(batch);
+                batch = new TreeMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        log.debug("商品浏览量写回完成，商品数量：{}", deltas.size());
+    }
+
+    /**
+     * 清理整个写回周期内没有浏览的商品，摘下后再取一次累计值，把刚好并发累加的浏览一并写回
+     */
+    private void evictIdle(List<Long> idleProductIds, Map<Long, Long> deltas) {
+        for (Long productId : idleProductIds) {
+            LongAdder adder = pendingCounts.remove(productId);
+            if (adder != null) {
+                long count = adder.sumThenReset();
+                if (count > 0) {
+                    deltas.merge(productId, count, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写回一批浏览量，失败时放回内存等待下次重试
+     */
+    private void writeBatch(TreeMap<Long, Long> batch) {
+        try {
+            productMapper.batchIncreaseViewCount(batch);
+        } catch (Exception e) {
+            log.error("商品浏览量写回失败，稍后重试，商品数量：{}", batch.size(), e);
+            batch.forEach((productId, count) -> pendingCounts.computeIfAbsent(productId, key -> new LongAdder()).add(count));
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Cart;
+import com.jingdong.mapper.CartMapper;
+import com.jingdong.service.CartStorageService;
+import com.jingdong.utils.SegmentIdGenerator;
+import com.jingdong.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 基于Redis的购物车存储实现
+ * 每个用户的购物车保存为一个Redis哈希：字段为商品ID，值为“购物车ID,数量,选中状态,加入时间毫秒”；
+ * 另有“c购物车ID -> 商品ID”的索引字段和“_”加载标记（空购物车也不必重复从数据库加载）。
+ * 读写都只访问Redis，修改通过Lua脚本原子执行并把用户记入待写回集合，
+ * 由定时任务把整个购物车异步写回数据库；缓存不存在时先从数据库加载。
+ * 写回时用SMOVE把用户从待写回集合移入本节点的处理中集合，提交后才移除，节点宕机时由其他节点按心跳超时放回待写回集合。
+ * 多节点写回同一用户时用按用户的Redis锁串行化“读取缓存 + 写数据库”，避免较早的快照晚提交覆盖较新的快照
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mall.cart.storage", havingValue = "redis")
+public class RedisCartStorageServiceImpl implements CartStorageService {
+
+    /**
+     * 购物车键前缀
+     */
+    private static final String CART_KEY_PREFIX = "cart:";
+
+    /**
+     * 待写回用户集合键
+     */
+    private static final String DIRTY_KEY = "cart:dirty";
+
+    /**
+     * 节点处理中用户集合键前缀，后接节点ID
+     */
+    private static final String PROCESSING_KEY_PREFIX = "cart:dirty:processing:";
+
+    /**
+     * 写回节点心跳有序集合键（成员为节点ID，分值为最近心跳时间毫秒）
+     */
+    private static final String NODES_KEY = "cart:dirty:nodes";
+
+    /**
+     * 写回锁键前缀
+     */
+    private static final String FLUSH_LOCK_KEY_PREFIX = "cart:flush:lock:";
+
+    /**
+     * 加载标记字段
+     */
+    private static final String LOADED_FIELD = "_";
+
+    /**
+     * 购物车ID索引字段前缀
+     */
+    private static final String CART_ID_FIELD_PREFIX = "c";
+
+    /**
+     * 修改脚本的返回值：购物车缓存不存在，需要先从数据库加载
+     */
+    private static final long NOT_LOADED = -2;
+
+    /**
+     * 添加脚本的返回值：需要新增购物车项，但没有传入购物车ID
+     */
+    private static final long NEED_CART_ID = -3;
+
+    /**
+     * 修改脚本公共部分：KEYS[1]为购物车键，KEYS[2]为待写回集合；ARGV[1]为用户ID，ARGV[2]为过期秒数。
+     * 缓存不存在时直接返回，修改完成后调用touch()记入待写回集合并续期
+     */
+    private static final String MUTATION_HEADER =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return " + NOT_LOADED + " end " +
+            "local function touch() " +
+            "  redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "  redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "end " +
+            "local function parse(item) return string.match(item, '^([^,]+),([^,]+),([^,]+),([^,]+)$') end ";
+
+    /**
+     * 加载脚本：只在缓存不存在时写入，ARGV[1]为过期秒数，之后依次为字段和值
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('HSET', KEYS[1], '" + LOADED_FIELD + "', '1') " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 添加脚本：ARGV[3]为商品ID，ARGV[4]为添加数量，ARGV[5]为最大数量，ARGV[6]为新购物车ID（可以为空），ARGV[7]为当前时间毫秒；
+     * 返回累加后的数量，超过最大数量时返回-1，需要新增购物车项而购物车ID为空时返回-3
+     */
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            MUTATION_HEADER +
+            "local item = redis.call('HGET', KEYS[1], ARGV[3]) " +
+            "local quantity = tonumber(ARGV[4]) " +
+            "if item then " +
+            "  local cartId, oldQuantity, selected, createTime = parse(item) " +
+            "  quantity = quantity + tonumber(oldQuantity) " +
+            "  if quantity > tonumber(ARGV[5]) then return -1 end " +
+            "  redis.call('HSET', KEYS[1], ARGV[3], cartId .. ',' .. quantity .. ',' .. selected .. ',' .. createTime) " +
+            "else " +
+            "  if quantity > tonumber(ARGV[5]) then return -1 end " +
+            "  if ARGV[6] == '' then return " + NEED_CART_ID + " end " +
+            "  redis.call('HSET', KEYS[1], ARGV[3], ARGV[6] .. ',' .. quantity .. ',1,' .. ARGV[7]) " +
+            "  redis.call('HSET', KEYS[1], '" + CART_ID_FIELD_PREFIX + "' .. ARGV[6], ARGV[3]) " +
+            "end " +
+            "touch() " +
+            "return quantity",
+            Long.class);
+
+    /**
+     * 单项更新脚本：ARGV[3]为购物车ID，ARGV[4]为数量（空表示不修改），ARGV[5]为选中状态（空表示不修改）；
+     * 返回1-已更新，0-购物车项不存在
+     */
+    private static final DefaultRedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            MUTATION_HEADER +
+            "local productId = redis.call('HGET', KEYS[1], '" + CART_ID_FIELD_PREFIX + "' .. ARGV[3]) " +
+            "if not productId then return 0 end " +
+            "local item = redis.call('HGET', KEYS[1], productId) " +
+            "if not item then return 0 end " +
+            "local cartId, quantity, selected, createTime = parse(item) " +
+            "if ARGV[4] ~= '' then quantity = ARGV[4] end " +
+            "if ARGV[5] ~= '' then selected = ARGV[5] end " +
+            "redis.call('HSET', KEYS[1], productId, cartId .. ',' .. quantity .. ',' .. selected .. ',' .. createTime) " +
+            "touch() " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 全选脚本：ARGV[3]为选中状态，返回购物车项数量
+     */
+    private static final DefaultRedisScript<Long> SELECT_ALL_SCRIPT = new DefaultRedisScript<>(
+            MUTATION_HEADER +
+            "local entries = redis.call('HGETALL', KEYS[1]) " +
+            "local count = 0 " +
+            "for i = 1, #entries, 2 do " +
+            "  if string.match(entries[i], '^%d+$') then " +
+            "    local cartId, quantity, selected, createTime = parse(entries[i + 1]) " +
+            "    if selected ~= ARGV[3] then " +
+            "      redis.call('HSET', KEYS[1], entries[i], cartId .. ',' .. quantity .. ',' .. ARGV[3] .. ',' .. createTime) " +
+            "    end " +
+            "    count = count + 1 " +
+            "  end " +
+            "end " +
+            "if count > 0 then touch() end " +
+            "return count",
+            Long.class);
+
+    /**
+     * 删除脚本：ARGV[3]为1时只有全部购物车项都存在才删除（否则返回-1），为0时删除存在的部分；
+     * ARGV[4]之后为购物车ID，返回删除数量
+     */
+    private static final DefaultRedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            MUTATION_HEADER +
+            "if ARGV[3] == '1' then " +
+            "  for i = 4, #ARGV do " +
+            "    if redis.call('HEXISTS', KEYS[1], '" + CART_ID_FIELD_PREFIX + "' .. ARGV[i]) == 0 then return -1 end " +
+            "  end " +
+            "end " +
+            "local count = 0 " +
+            "for i = 4, #ARGV do " +
+            "  local field = '" + CART_ID_FIELD_PREFIX + "' .. ARGV[i] " +
+            "  local productId = redis.call('HGET', KEYS[1], field) " +
+            "  if productId then " +
+            "    redis.call('HDEL', KEYS[1], productId, field) " +
+            "    count = count + 1 " +
+            "  end " +
+            "end " +
+            "if count > 0 then touch() end " +
+            "return count",
+            Long.class);
+
+    /**
+     * 清空脚本：不需要先加载，直接替换为只有加载标记的空购物车，由写回任务删除数据库中的购物车项；
+     * 返回删除的购物车项数量（缓存不存在时为0）
+     */
+    private static final DefaultRedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "local count = 0 " +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "  if string.match(field, '^%d+$') then count = count + 1 end " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], '" + LOADED_FIELD + "', '1') " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return count",
+            Long.class);
+
+    /**
+     * 领取脚本：KEYS[1]为待写回集合，KEYS[2]为本节点处理中集合，KEYS[3]为节点心跳集合；
+     * ARGV[1]为领取数量，ARGV[2]为节点ID，ARGV[3]为当前时间毫秒。
+     * 记录心跳后把最多N个用户逐个SMOVE到处理中集合，返回处理中集合的全部用户（含上次未确认的用户）
+     */
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[3], ARGV[3], ARGV[2]) " +
+            "local members = redis.call('SRANDMEMBER', KEYS[1], tonumber(ARGV[1])) " +
+            "for _, member in ipairs(members) do redis.call('SMOVE', KEYS[1], KEYS[2], member) end " +
+            "return redis.call('SMEMBERS', KEYS[2])",
+            List.class);
+
+    /**
+     * 恢复脚本：KEYS[1]为失联节点的处理中集合，KEYS[2]为待写回集合，KEYS[3]为节点心跳集合；
+     * ARGV[1]为节点ID，ARGV[2]为心跳截止时间毫秒。
+     * 节点心跳已恢复时返回-1，否则把处理中的用户放回待写回集合并移除该节点，返回放回的用户数量
+     */
+    private static final DefaultRedisScript<Long> RECOVER_SCRIPT = new DefaultRedisScript<>(
+            "local heartbeat = redis.call('ZSCORE', KEYS[3], ARGV[1]) " +
+            "if heartbeat and tonumber(heartbeat) > tonumber(ARGV[2]) then return -1 end " +
+            "local members = redis.call('SMEMBERS', KEYS[1]) " +
+            "for _, member in ipairs(members) do redis.call('SMOVE', KEYS[1], KEYS[2], member) end " +
+            "redis.call('ZREM', KEYS[3], ARGV[1]) " +
+            "return #members",
+            Long.class);
+
+    /**
+     * 释放写回锁脚本：只删除自己持有的锁
+     */
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private SegmentIdGenerator segmentIdGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 购物车缓存过期时间（天），不活跃用户的购物车自动淘汰，下次访问从数据库加载
+     */
+    @Value("${mall.cart.redis-ttl-days:7}")
+    private long ttlDays;
+
+    /**
+     * 每次写回的用户数量
+     */
+    @Value("${mall.cart.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    /**
+     * 写回单个用户时持有的锁时长（毫秒）
+     */
+    @Value("${mall.cart.flush-lock-ms:30000}")
+    private long flushLockMillis;
+
+    /**
+     * 写回节点心跳超时时间（毫秒），超时节点处理中的用户由其他节点放回待写回集合
+     */
+    @Value("${mall.cart.processing-timeout-ms:300000}")
+    private long processingTimeoutMillis;
+
+    /**
+     * 本节点ID（每次启动生成）
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本节点处理中用户集合键
+     */
+    private final String processingKey = PROCESSING_KEY_PREFIX + nodeId;
+
+    /**
+     * 写回事务模板：超时为锁时长的一半，保证事务在锁过期前提交或回滚
+     */
+    private TransactionTemplate flushTransactionTemplate;
+
+    /**
+     * 初始化写回事务模板
+     */
+    @PostConstruct
+    public void init() {
+        flushTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        flushTransactionTemplate.setTimeout((int) Math.max(TimeUnit.MILLISECONDS.toSeconds(flushLockMillis) / 2, 1));
+    }
+
+    /**
+     * 获取用户的全部购物车项
+     */
+    @Override
+    public List<Cart> listItems(Long userId) {
+        Map<Object, Object> entries;
+        try {
+            entries = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+        } catch (Exception e) {
+            // 只读降级：数据库中可能缺少尚未写回的最近修改
+            log.warn("读取购物车缓存失败，改为从数据库查询，用户ID：{}", userId, e);
+            return cartMapper.findByUserId(userId);
+        }
+        if (entries.isEmpty()) {
+            return loadFromDatabase(userId);
+        }
+        return parseItems(userId, entries);
+    }
+
+    /**
+     * 获取用户的购物车项
+     */
+    @Override
+    public Cart getItem(Long userId, Long cartId) {
+        return listItems(userId).stream()
+                .filter(cart -> cart.getCartId().equals(cartId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 批量获取用户的购物车项
+     */
+    @Override
+    public List<Cart> getItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> cartIdSet = new HashSet<>(cartIds);
+        return listItems(userId).stream()
+                .filter(cart -> cartIdSet.contains(cart.getCartId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 添加商品到购物车
+     * 先不带购物车ID执行，脚本返回需要新增购物车项时才分配ID并重试，累加已有购物车项不消耗号段
+     */
+    @Override
+    public boolean addItem(Long userId, Long productId, int quantity, int maxQuantity) {
+        String createTime = String.valueOf(System.currentTimeMillis());
+        long result = executeMutation(ADD_SCRIPT, userId, productId.toString(), String.valueOf(quantity),
+                String.valueOf(maxQuantity), "", createTime);
+        if (result == NEED_CART_ID) {
+            result = executeMutation(ADD_SCRIPT, userId, productId.toString(), String.valueOf(quantity),
+                    String.valueOf(maxQuantity), String.valueOf(segmentIdGenerator.nextId(Cart.class)), createTime);
+        }
+        return result >= 0;
+    }
+
+    /**
+     * 更新购物车项数量
+     */
+    @Override
+    public boolean updateQuantity(Long userId, Long cartId, int quantity) {
+        return executeMutation(UPDATE_SCRIPT, userId, cartId.toString(), String.valueOf(quantity), "") > 0;
+    }
+
+    /**
+     * 更新购物车项选中状态
+     */
+    @Override
+    public boolean updateSelected(Long userId, Long cartId, int selected) {
+        return executeMutation(UPDATE_SCRIPT, userId, cartId.toString(), "", String.valueOf(selected)) > 0;
+    }
+
+    /**
+     * 更新用户全部购物车项的选中状态
+     */
+    @Override
+    public int updateAllSelected(Long userId, int selected) {
+        return (int) executeMutation(SELECT_ALL_SCRIPT, userId, String.valueOf(selected));
+    }
+
+    /**
+     * 删除用户的购物车项
+     * 在事务中调用时（如下单）等事务提交后再删除，避免订单回滚后购物车项已丢失
+     */
+    @Override
+    public int removeItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return 0;
+        }
+        String[] args = removeArgs(false, cartIds);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return (int) executeMutation(REMOVE_SCRIPT, userId, args);
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                executeMutation(REMOVE_SCRIPT, userId, args);
+            } catch (Exception e) {
+                log.error("删除购物车项失败，用户ID：{}，购物车ID列表：{}", userId, cartIds, e);
+            }
+        });
+        return cartIds.size();
+    }
+
+    /**
+     * 删除用户的购物车项，只有全部存在时才删除
+     */
+    @Override
+    public boolean removeAllItems(Long userId, Collection<Long> cartIds) {
+        if (cartIds == null || cartIds.isEmpty()) {
+            return true;
+        }
+        return executeMutation(REMOVE_SCRIPT, userId, removeArgs(true, cartIds)) >= 0;
+    }
+
+    /**
+     * 清空用户购物车
+     */
+    @Override
+    public int clear(Long userId) {
+        Long result = stringRedisTemplate.execute(CLEAR_SCRIPT, Arrays.asList(cartKey(userId), DIRTY_KEY),
+                userId.toString(), String.valueOf(ttlSeconds()));
+        return result != null ? result.intValue() : 0;
+    }
+
+    /**
+     * 统计用户购物车商品总数
+     */
+    @Override
+    public int countQuantity(Long userId) {
+        return listItems(userId).stream().mapToInt(Cart::getQuantity).sum();
+    }
+
+    /**
+     * 定时把有修改的购物车写回数据库
+     * 以缓存中的整个购物车为准：写入缓存中的购物车项，删除数据库中多出的购物车项；
+     * 用户正被其他节点写回时放回待写回集合，等对方提交后再写回最新的快照；
+     * 领取的用户先移入本节点的处理中集合，写回提交后才移除，节点在写回中途宕机也不会丢失待写回的用户
+     */
+    @Scheduled(fixedDelayString = "${mall.cart.flush-interval-ms:1000}")
+    public void flush() {
+        List<String> members;
+        try {
+            members = stringRedisTemplate.execute(CLAIM_SCRIPT, Arrays.asList(DIRTY_KEY, processingKey, NODES_KEY),
+                    String.valueOf(flushBatchSize), nodeId, String.valueOf(System.currentTimeMillis()));
+        } catch (Exception e) {
+            log.warn("获取待写回购物车失败", e);
+            return;
+        }
+        if (members == null || members.isEmpty()) {
+            return;
+        }
+
+        int flushed = 0;
+        long lastHeartbeat = System.currentTimeMillis();
+        for (String member : members) {
+            if (System.currentTimeMillis() - lastHeartbeat > processingTimeoutMillis / 3) {
+                lastHeartbeat = heartbeat();
+            }
+            Long userId = Long.valueOf(member);
+            String lockKey = FLUSH_LOCK_KEY_PREFIX + userId;
+            String token = UUID.randomUUID().toString();
+            boolean locked = false;
+            try {
+                locked = Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                        .setIfAbsent(lockKey, token, flushLockMillis, TimeUnit.MILLISECONDS));
+                if (!locked) {
+                    // 其他节点正在写回该用户，稍后重新写回
+                    requeue(member);
+                    continue;
+                }
+                Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+                if (entries.isEmpty()) {
+                    // 缓存已过期，修改早已写回或无法恢复，保留数据库中的数据
+                    acknowledge(member);
+                    continue;
+                }
+                List<Cart> items = parseItems(userId, entries);
+                List<Long> cartIds = items.stream().map(Cart::getCartId).collect(Collectors.toList());
+                flushTransactionTemplate.executeWithoutResult(status -> {
+                    if (!items.isEmpty()) {
+                        cartMapper.upsertBatch(items);
+                    }
+                    cartMapper.deleteByUserIdExcluding(userId, cartIds);
+                });
+                // 事务已提交，从处理中集合移除
+                acknowledge(member);
+                flushed++;
+            } catch (Exception e) {
+                // 写回失败，把用户放回待写回集合
+                log.error("购物车写回数据库失败，稍后重试，用户ID：{}", userId, e);
+                requeue(member);
+            } finally {
+                if (locked) {
+                    unlockFlush(lockKey, token);
+                }
+            }
+        }
+        log.debug("购物车写回完成，用户数量：{}，成功：{}", members.size(), flushed);
+    }
+
+    /**
+     * 定时恢复心跳超时节点处理中的用户：节点在写回中途宕机时，把它领取的用户放回待写回集合；
+     * 节点只是暂时卡顿时会重复写回，写回以缓存快照为准，重复写回不影响结果
+     */
+    @Scheduled(fixedDelayString = "${mall.cart.recover-interval-ms:60000}")
+    public void recoverStaleProcessing() {
+        long cutoff = System.currentTimeMillis() - processingTimeoutMillis;
+        Set<String> staleNodes;
+        try {
+            staleNodes = stringRedisTemplate.opsForZSet().rangeByScore(NODES_KEY, 0, cutoff);
+        } catch (Exception e) {
+            log.warn("获取心跳超时的购物车写回节点失败", e);
+            return;
+        }
+        if (staleNodes == null || staleNodes.isEmpty()) {
+            return;
+        }
+        for (String staleNode : staleNodes) {
+            if (staleNode.equals(nodeId)) {
+                continue;
+            }
+            try {
+                Long recovered = stringRedisTemplate.execute(RECOVER_SCRIPT,
+                        Arrays.asList(PROCESSING_KEY_PREFIX + staleNode, DIRTY_KEY, NODES_KEY),
+                        staleNode, String.valueOf(cutoff));
+                if (recovered != null && recovered > 0) {
+                    log.warn("购物车写回节点心跳超时，已放回待写回用户，节点ID：{}，用户数量：{}", staleNode, recovered);
+                }
+            } catch (Exception e) {
+                log.error("恢复购物车写回节点处理中的用户失败，节点ID：{}", staleNode, e);
+            }
+        }
+    }
+
+    /**
+     * 刷新本节点心跳
+     * 
+     * @return 心跳时间毫秒
+     */
+    private long heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        } catch (Exception e) {
+            log.warn("刷新购物车写回节点心跳失败，节点ID：{}", nodeId, e);
+        }
+        return now;
+    }
+
+    /**
+     * 写回已提交，从本节点处理中集合移除用户；失败时用户留在处理中集合，下次领取时重新写回
+     */
+    private void acknowledge(String member) {
+        try {
+            stringRedisTemplate.opsForSet().remove(processingKey, member);
+        } catch (Exception e) {
+            log.warn("移除处理中的购物车写回用户失败，用户ID：{}", member, e);
+        }
+    }
+
+    /**
+     * 把用户从本节点处理中集合放回待写回集合；失败时用户留在处理中集合，下次领取时重新写回
+     */
+    private void requeue(String member) {
+        try {
+            stringRedisTemplate.opsForSet().move(processingKey, member, DIRTY_KEY);
+        } catch (Exception e) {
+            log.warn("放回待写回购物车用户失败，用户ID：{}", member, e);
+        }
+    }
+
+    /**
+     * 释放写回锁，失败时等待锁自然过期
+     */
+    private void unlockFlush(String lockKey, String token) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (Exception e) {
+            log.warn("释放购物车写回锁失败，锁键：{}", lockKey, e);
+        }
+    }
+
+    /**
+     * 执行修改脚本，缓存不存在时从数据库加载后重试一次
+     */
+    private long executeMutation(DefaultRedisScript<Long> script, Long userId, String... extraArgs) {
+        List<String> keys = Arrays.asList(cartKey(userId), DIRTY_KEY);
+        Object[] args = new Object[extraArgs.length + 2];
+        args[0] = userId.toString();
+        args[1] = String.valueOf(ttlSeconds());
+        System.arraycopy(extraArgs, 0, args, 2, extraArgs.length);
+
+        Long result = stringRedisTemplate.execute(script, keys, args);
+        if (result != null && result == NOT_LOADED) {
+            loadFromDatabase(userId);
+            result = stringRedisTemplate.execute(script, keys, args);
+        }
+        if (result == null || result == NOT_LOADED) {
+            throw new IllegalStateException("购物车缓存加载失败，用户ID：" + userId);
+        }
+        return result;
+    }
+
+    /**
+     * 组装删除脚本参数
+     */
+    private String[] removeArgs(boolean allOrNothing, Collection<Long> cartIds) {
+        String[] args = new String[cartIds.size() + 1];
+        args[0] = allOrNothing ? "1" : "0";
+        int i = 1;
+        for (Long cartId : cartIds) {
+            args[i++] = cartId.toString();
+        }
+        return args;
+    }
+
+    /**
+     * 从数据库加载购物车并写入缓存（缓存已存在时不覆盖）
+     */
+    private List<Cart> loadFromDatabase(Long userId) {
+        List<Cart> items = cartMapper.findByUserId(userId);
+        List<String> args = new ArrayList<>(items.size() * 4 + 1);
+        args.add(String.valueOf(ttlSeconds()));
+        for (Cart cart : items) {
+            long createTime = cart.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            args.add(cart.getProductId().toString());
+            args.add(cart.getCartId() + "," + cart.getQuantity() + "," + cart.getSelected() + "," + createTime);
+            args.add(CART_ID_FIELD_PREFIX + cart.getCartId());
+            args.add(cart.getProductId().toString());
+        }
+        stringRedisTemplate.execute(LOAD_SCRIPT, Arrays.asList(cartKey(userId)), args.toArray());
+        return items;
+    }
+
+    /**
+     * 解析缓存中的购物车项，按加入时间倒序
+     */
+    private List<Cart> parseItems(Long userId, Map<Object, Object> entries) {
+        List<Cart> items = new ArrayList<>(entries.size() / 2);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = entry.getKey().toString();
+            if (field.isEmpty() || !Character.isDigit(field.charAt(0))) {
+                continue;
+            }
+            String[] parts = entry.getValue().toString().split(",");
+            Cart cart = new Cart();
+            cart.setCartId(Long.valueOf(parts[0]));
+            cart.setUserId(userId);
+            cart.setProductId(Long.valueOf(field));
+            cart.setQuantity(Integer.valueOf(parts[1]));
+            cart.setSelected(Integer.valueOf(parts[2]));
+            cart.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[3])), ZoneId.systemDefault()));
+            cart.setDeleted(0);
+            items.add(cart);
+        }
+        items.sort(Comparator.comparing(Cart::getCreateTime).reversed());
+        return items;
+    }
+
+    /**
+     * 购物车键
+     */
+    private String cartKey(Long userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 购物车缓存过期秒数
+     */
+    private long ttlSeconds() {
+        return ttlDays * 86400;
+    }
+}
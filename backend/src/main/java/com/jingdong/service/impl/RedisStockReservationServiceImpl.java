@@ -0,0 +1,299 @@
+package com.jingdong.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于Redis的库存预占服务实现
+ * 每个商品的可售库存保存为一个带过期时间的字符串键，预占和释放通过Lua脚本原子执行；
+ * 待写回的变化量也保存在Redis哈希中，所有节点共享，任一节点预热时都能算上其他节点尚未写回的预占
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mall.stock.reservation.store", havingValue = "redis", matchIfMissing = true)
+public class RedisStockReservationServiceImpl extends AbstractStockReservationService {
+
+    /**
+     * 可售库存键前缀
+     */
+    private static final String STOCK_KEY_PREFIX = "stock:available:";
+
+    /**
+     * 待写回变化量哈希键（字段为商品ID）
+     */
+    private static final String PENDING_KEY = "stock:pending";
+
+    /**
+     * 写回中变化量哈希键（字段为商品ID）
+     */
+    private static final String FLUSHING_KEY = "stock:flushing";
+
+    /**
+     * 写回代数键
+     */
+    private static final String GENERATION_KEY = "stock:flush:generation";
+
+    /**
+     * 写回中变化量的过期秒数，写回节点异常退出时遗留的变化量最终被清除
+     */
+    private static final long FLUSHING_TTL_SECONDS = 300;
+
+    /**
+     * 预占脚本：先检查全部键是否存在、库存是否充足，全部满足才统一扣减
+     * 返回 {状态, 位置...}，状态 0-成功，1-缺少缓存，2-库存不足
+     */
+    private static final DefaultRedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local result = {1} " +
+            "for i = 1, #KEYS do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 0 then table.insert(result, i) end " +
+            "end " +
+            "if #result > 1 then return result end " +
+            "result = {2} " +
+            "for i = 1, #KEYS do " +
+            "  if tonumber(redis.call('GET', KEYS[i])) < tonumber(ARGV[i]) then table.insert(result, i) end " +
+            "end " +
+            "if #result > 1 then return result end " +
+            "for i = 1, #KEYS do redis.call('DECRBY', KEYS[i], ARGV[i]) end " +
+            "return {0}",
+            List.class);
+
+    /**
+     * 释放脚本：只归还仍存在于缓存中的库存，不存在的等待下次从数据库预热
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then redis.call('INCRBY', KEYS[i], ARGV[i]) end " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 预热脚本：KEYS依次为待写回、写回中、写回代数和各商品的可售库存键，ARGV[1]为读取数据库前的写回代数，
+     * ARGV[2]为过期秒数，之后依次为各商品的商品ID和数据库库存；写回代数已变化时返回0，否则只初始化不存在的键并返回1
+     */
+    private static final DefaultRedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then return 0 end " +
+            "for i = 4, #KEYS do " +
+            "  local productId = ARGV[(i - 4) * 2 + 3] " +
+            "  local available = tonumber(ARGV[(i - 4) * 2 + 4]) " +
+            "  available = available + tonumber(redis.call('HGET', KEYS[1], productId) or '0') " +
+            "  local flushing = tonumber(redis.call('HGET', KEYS[2], productId) or '0') " +
+            "  if flushing < 0 then available = available + flushing end " +
+            "  if available < 0 then available = 0 end " +
+            "  redis.call('SET', KEYS[i], available, 'EX', ARGV[2], 'NX') " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 累加脚本：ARGV依次为商品ID和变化量
+     */
+    private static final DefaultRedisScript<Long> ADD_PENDING_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 取出脚本：把待写回的非零变化量整体转入写回中，返回 {商品ID, 变化量, ...}
+     */
+    private static final DefaultRedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local entries = redis.call('HGETALL', KEYS[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "local result = {} " +
+            "for i = 1, #entries, 2 do " +
+            "  if tonumber(entries[i + 1]) ~= 0 then " +
+            "    redis.call('HINCRBY', KEYS[2], entries[i], entries[i + 1]) " +
+            "    table.insert(result, entries[i]) " +
+            "    table.insert(result, entries[i + 1]) " +
+            "  end " +
+            "end " +
+            "if #result > 0 then redis.call('EXPIRE', KEYS[2], ARGV[1]) end " +
+            "return result",
+            List.class);
+
+    /**
+     * 结束写回脚本：ARGV[1]为1表示写回成功（递增写回代数），为0表示失败（放回待写回），之后依次为商品ID和变化量
+     */
+    private static final DefaultRedisScript<Long> FINISH_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 2 do " +
+            "  if redis.call('HINCRBY', KEYS[2], ARGV[i], -tonumber(ARGV[i + 1])) == 0 then " +
+            "    redis.call('HDEL', KEYS[2], ARGV[i]) " +
+            "  end " +
+            "  if ARGV[1] == '0' then redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "end " +
+            "if ARGV[1] == '1' then redis.call('INCR', KEYS[3]) end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 原子预占库存
+     */
+    @Override
+    protected ReserveOutcome tryReserve(TreeMap<Long, Integer> quantities) {
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>(productIds.size());
+        List<String> args = new ArrayList<>(productIds.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            keys.add(STOCK_KEY_PREFIX + entry.getKey());
+            args.add(String.valueOf(entry.getValue()));
+        }
+
+        List<?> result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("库存预占脚本返回为空");
+        }
+        int status = ((Number) result.get(0)).intValue();
+        if (status == RESERVED) {
+            return ReserveOutcome.reserved();
+        }
+
+        // 把脚本返回的位置（从1开始）换算成商品ID
+        List<Long> failedProductIds = new ArrayList<>(result.size() - 1);
+        for (Object position : result.subList(1, result.size())) {
+            failedProductIds.add(productIds.get(((Number) position).intValue() - 1));
+        }
+        return new ReserveOutcome(status, failedProductIds);
+    }
+
+    /**
+     * 获取当前写回代数
+     */
+    @Override
+    protected long flushGeneration() {
+        String generation = stringRedisTemplate.opsForValue().get(GENERATION_KEY);
+        return generation != null ? Long.parseLong(generation) : 0L;
+    }
+
+    /**
+     * 初始化商品可售库存
+     */
+    @Override
+    protected boolean initStock(Map<Long, Long> databaseStock, long generation) {
+        List<String> keys = new ArrayList<>(databaseStock.size() + 3);
+        List<String> args = new ArrayList<>(databaseStock.size() * 2 + 2);
+        keys.add(PENDING_KEY);
+        keys.add(FLUSHING_KEY);
+        keys.add(GENERATION_KEY);
+        args.add(String.valueOf(generation));
+        args.add(String.valueOf(cacheTtlSeconds));
+        for (Map.Entry<Long, Long> entry : databaseStock.entrySet()) {
+            keys.add(STOCK_KEY_PREFIX + entry.getKey());
+            args.add(entry.getKey().toString());
+            args.add(entry.getValue().toString());
+        }
+        Long result = stringRedisTemplate.execute(INIT_SCRIPT, keys, args.toArray());
+        return result != null && result == 1;
+    }
+
+    /**
+     * 累加待写回的库存变化量
+     */
+    @Override
+    protected void addPendingDeltas(Map<Long, Long> deltas) {
+        stringRedisTemplate.execute(ADD_PENDING_SCRIPT, Collections.singletonList(PENDING_KEY), deltaArgs(deltas).toArray());
+    }
+
+    /**
+     * 取出全部待写回的变化量并转为写回中
+     */
+    @Override
+    protected Map<Long, Long> takePendingDeltas() {
+        List<?> result = stringRedisTemplate.execute(TAKE_SCRIPT, Arrays.asList(PENDING_KEY, FLUSHING_KEY),
+                String.valueOf(FLUSHING_TTL_SECONDS));
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> deltas = new HashMap<>(result.size());
+        for (int i = 0; i + 1 < result.size(); i += 2) {
+            deltas.put(Long.valueOf(result.get(i).toString()), Long.valueOf(result.get(i + 1).toString()));
+        }
+        return deltas;
+    }
+
+    /**
+     * 结束写回
+     */
+    @Override
+    protected void finishPendingDeltas(Map<Long, Long> deltas, boolean written) {
+        List<String> args = deltaArgs(deltas);
+        args.add(0, written ? "1" : "0");
+        stringRedisTemplate.execute(FINISH_SCRIPT, Arrays.asList(PENDING_KEY, FLUSHING_KEY, GENERATION_KEY), args.toArray());
+    }
+
+    /**
+     * 读取缓存中的可售库存
+     */
+    @Override
+    protected Map<Long, Long> readStock(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long productId : ids) {
+            keys.add(STOCK_KEY_PREFIX + productId);
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        Map<Long, Long> stocks = new HashMap<>(ids.size() * 2);
+        for (int i = 0; values != null && i < ids.size(); i++) {
+            if (values.get(i) != null) {
+                stocks.put(ids.get(i), Long.valueOf(values.get(i)));
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 删除商品的可售库存缓存
+     */
+    @Override
+    protected void evictStock(Collection<Long> productIds) {
+        List<String> keys = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            keys.add(STOCK_KEY_PREFIX + productId);
+        }
+        stringRedisTemplate.delete(keys);
+    }
+
+    /**
+     * 归还库存
+     */
+    @Override
+    protected void doRelease(Map<Long, Integer> quantities) {
+        List<String> keys = new ArrayList<>(quantities.size());
+        List<String> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            keys.add(STOCK_KEY_PREFIX + entry.getKey());
+            args.add(String.valueOf(entry.getValue()));
+        }
+        stringRedisTemplate.execute(RELEASE_SCRIPT, keys, args.toArray());
+    }
+
+    /**
+     * 把变化量展开为脚本参数：商品ID、变化量依次排列
+     */
+    private List<String> deltaArgs(Map<Long, Long> deltas) {
+        List<String> args = new ArrayList<>(deltas.size() * 2 + 1);
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            args.add(entry.getKey().toString());
+            args.add(entry.getValue().toString());
+        }
+        return args;
+    }
+}
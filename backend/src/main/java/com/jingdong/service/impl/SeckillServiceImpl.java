@@ -0,0 +1,771 @@
+package com.jingdong.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jingdong.dto.SeckillOrderDTO;
+import com.jingdong.entity.Order;
+import com.jingdong.entity.OrderItem;
+import com.jingdong.entity.Product;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.OrderItemMapper;
+import com.jingdong.mapper.OrderMapper;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.OrderCountService;
+import com.jingdong.service.OrderService;
+import com.jingdong.service.OrderTimeoutService;
+import com.jingdong.service.SeckillService;
+import com.jingdong.service.StockReservationService;
+import com.jingdong.utils.SegmentIdGenerator;
+import com.jingdong.utils.TransactionUtils;
+import com.jingdong.vo.SeckillTicketVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀服务实现类
+ * 活动、剩余活动库存、已抢用户和排队凭证都保存在Redis中，抢购通过Lua脚本原子扣减活动库存，
+ * 多节点共享同一份活动状态，节点重启也不会丢失活动库存；
+ * 抢到名额的请求放入本节点的有界队列，后台线程批量写入订单和订单详情，批量写入失败时逐单重试；
+ * 排队中的凭证同时登记在Redis有序集合中，节点宕机导致队列丢失时由补偿任务归还名额；
+ * 活动库存从商品库存中划出，启用库存预占时通过预占服务划出和归还，与普通下单共用同一份可售库存
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class SeckillServiceImpl implements SeckillService {
+
+    /**
+     * 排队状态：排队中
+     */
+    private static final int TICKET_QUEUED = 0;
+
+    /**
+     * 排队状态：下单成功
+     */
+    private static final int TICKET_SUCCESS = 1;
+
+    /**
+     * 排队状态：下单失败
+     */
+    private static final int TICKET_FAILED = 2;
+
+    /**
+     * 排队结果保留时间（秒）
+     */
+    private static final long TICKET_RETENTION_SECONDS = TimeUnit.MINUTES.toSeconds(30);
+
+    /**
+     * 已结束活动的保留时间（秒），期间仍可读取活动开启时的商品快照
+     */
+    private static final long CLOSED_ACTIVITY_RETENTION_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    /**
+     * 活动键前缀（哈希：id-活动ID，open-是否进行中，stock-剩余活动库存，以及商品快照）
+     */
+    private static final String ACTIVITY_KEY_PREFIX = "seckill:activity:";
+
+    /**
+     * 已抢用户集合键前缀
+     */
+    private static final String BUYERS_KEY_PREFIX = "seckill:buyers:";
+
+    /**
+     * 活动ID序号键
+     */
+    private static final String ACTIVITY_SEQUENCE_KEY = "seckill:activity:seq";
+
+    /**
+     * 排队凭证键前缀（哈希：userId、productId、activityId、quantity、status、orderId、orderNo）
+     */
+    private static final String TICKET_KEY_PREFIX = "seckill:ticket:";
+
+    /**
+     * 排队中凭证的有序集合键（分值为排队时间毫秒）
+     */
+    private static final String PENDING_KEY = "seckill:pending";
+
+    /**
+     * 登记脚本：KEYS[1]为活动键，KEYS[2]为已抢用户键，KEYS[3]为活动ID序号键；
+     * ARGV[1]为商品名称，ARGV[2]为商品图片，ARGV[3]为价格。
+     * 活动进行中时返回0，否则以0库存登记新活动并返回活动ID
+     */
+    private static final DefaultRedisScript<Long> REGISTER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'open') == '1' then return 0 end " +
+            "local id = redis.call('INCR', KEYS[3]) " +
+            "redis.call('DEL', KEYS[1], KEYS[2]) " +
+            "redis.call('HSET', KEYS[1], 'id', id, 'open', '1', 'stock', 0, " +
+            "  'name', ARGV[1], 'image', ARGV[2], 'price', ARGV[3]) " +
+            "return id",
+            Long.class);
+
+    /**
+     * 注销脚本：活动ID仍为ARGV[1]时删除活动（划出商品库存失败时回滚登记）
+     */
+    private static final DefaultRedisScript<Long> UNREGISTER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'id') ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[1], KEYS[2]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 增加活动库存脚本：活动ID为ARGV[1]且仍在进行中时增加ARGV[2]件，返回1；否则返回0，由调用方归还到商品库存
+     */
+    private static final DefaultRedisScript<Long> ADD_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'id') ~= ARGV[1] or redis.call('HGET', KEYS[1], 'open') ~= '1' then return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], 'stock', ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 结束脚本：停止抢购并取出全部剩余活动库存，活动保留一段时间供读取商品快照；
+     * ARGV[1]为保留秒数，活动不存在或已结束时返回-1
+     */
+    private static final DefaultRedisScript<Long> CLOSE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'open') ~= '1' then return -1 end " +
+            "local stock = tonumber(redis.call('HGET', KEYS[1], 'stock')) " +
+            "redis.call('HSET', KEYS[1], 'open', '0', 'stock', 0) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('DEL', KEYS[2]) " +
+            "return stock",
+            Long.class);
+
+    /**
+     * 抢购脚本：KEYS[1]为活动键，KEYS[2]为已抢用户键，KEYS[3]为排队凭证键，KEYS[4]为排队中凭证集合；
+     * ARGV[1]为用户ID，ARGV[2]为购买数量，ARGV[3]为商品ID，ARGV[4]为排队凭证，ARGV[5]为当前时间毫秒。
+     * 成功时扣减活动库存、登记用户和排队凭证并返回活动ID；活动不存在或已结束返回-1，已抢过返回-2，库存不足返回-3
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'open') ~= '1' then return -1 end " +
+            "if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then return -2 end " +
+            "if tonumber(redis.call('HGET', KEYS[1], 'stock')) < tonumber(ARGV[2]) then return -3 end " +
+            "local id = redis.call('HGET', KEYS[1], 'id') " +
+            "redis.call('HINCRBY', KEYS[1], 'stock', -tonumber(ARGV[2])) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "redis.call('HSET', KEYS[3], 'userId', ARGV[1], 'productId', ARGV[3], 'activityId', id, " +
+            "  'quantity', ARGV[2], 'status', '" + TICKET_QUEUED + "', 'createTime', ARGV[5]) " +
+            "redis.call('ZADD', KEYS[4], ARGV[5], ARGV[4]) " +
+            "return tonumber(id)",
+            Long.class);
+
+    /**
+     * 归还名额脚本：KEYS与抢购脚本相同；ARGV[1]为活动ID，ARGV[2]为用户ID，ARGV[3]为购买数量，
+     * ARGV[4]为排队凭证，ARGV[5]为排队结果保留秒数。
+     * 凭证已不在排队中（已被其他节点处理）时返回-1；否则标记下单失败，
+     * 活动仍在进行中时归还活动库存并返回1，活动已结束或已重开时返回0，由调用方归还到商品库存
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZREM', KEYS[4], ARGV[4]) == 0 then return -1 end " +
+            "redis.call('HSET', KEYS[3], 'status', '" + TICKET_FAILED + "') " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[5]) " +
+            "if redis.call('HGET', KEYS[1], 'id') ~= ARGV[1] or redis.call('HGET', KEYS[1], 'open') ~= '1' then return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], 'stock', ARGV[3]) " +
+            "redis.call('SREM', KEYS[2], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 下单成功脚本：KEYS[1]为排队中凭证集合，之后为排队凭证键；
+     * ARGV[1]为排队结果保留秒数，之后依次为每个凭证的排队凭证、订单ID、订单号
+     */
+    private static final DefaultRedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #KEYS do " +
+            "  local offset = (i - 2) * 3 + 2 " +
+            "  redis.call('ZREM', KEYS[1], ARGV[offset]) " +
+            "  redis.call('HSET', KEYS[i], 'status', '" + TICKET_SUCCESS + "', 'orderId', ARGV[offset + 1], 'orderNo', ARGV[offset + 2]) " +
+            "  redis.call('EXPIRE', KEYS[i], ARGV[1]) " +
+            "end " +
+            "return #KEYS - 1",
+            Long.class);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderCountService orderCountService;
+
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SegmentIdGenerator segmentIdGenerator;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 排队队列容量
+     */
+    @Value("${mall.seckill.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * 每批写入的订单数量
+     */
+    @Value("${mall.seckill.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 排队超过该时间仍未写入的凭证视为所在节点已宕机，由补偿任务处理（毫秒）
+     */
+    @Value("${mall.seckill.pending-timeout-ms:300000}")
+    private long pendingTimeoutMs;
+
+    /**
+     * 活动开启时的商品快照（活动ID -> 快照），只在本节点缓存
+     */
+    private final Cache<Long, ActivitySnapshot> snapshots = Caffeine.newBuilder()
+            .expireAfterAccess(CLOSED_ACTIVITY_RETENTION_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 待写入的秒杀请求队列
+     */
+    private BlockingQueue<SeckillRequest> requestQueue;
+
+    /**
+     * 订单写入线程
+     */
+    private Thread writerThread;
+
+    /**
+     * 写入线程是否继续运行
+     */
+    private volatile boolean running = true;
+
+    /**
+     * 启动订单写入线程
+     */
+    @PostConstruct
+    public void start() {
+        requestQueue = new ArrayBlockingQueue<>(queueCapacity);
+        writerThread = new Thread(this::writeLoop, "seckill-order-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 停止写入线程，写完队列中剩余的请求
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * 开启秒杀活动
+     * 先在Redis中原子登记活动（此时活动库存为0），登记成功后才划出商品库存，
+     * 事务提交后把活动库存加到活动上，划出失败或事务回滚时注销登记
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public String openActivity(Long productId, Integer stock) {
+        log.info("开启秒杀活动，商品ID：{}，活动库存：{}", productId, stock);
+
+        if (stock == null || stock <= 0) {
+            throw new BusinessException("活动库存必须大于0");
+        }
+
+        Product product = productMapper.selectById(productId);
+        if (product == null || product.getDeleted() == 1 || product.getStatus() == 0) {
+            throw new BusinessException("商品不存在或已下架");
+        }
+
+        List<String> keys = Arrays.asList(activityKey(productId), buyersKey(productId), ACTIVITY_SEQUENCE_KEY);
+        Long activityId = stringRedisTemplate.execute(REGISTER_SCRIPT, keys,
+                nullToEmpty(product.getProductName()), nullToEmpty(product.getMainImage()), product.getPrice().toPlainString());
+        if (activityId == null || activityId == 0) {
+            throw new BusinessException("该商品的秒杀活动正在进行中");
+        }
+
+        // 从商品库存中划出活动库存
+        boolean taken;
+        try {
+            taken = takeProductStock(productId, stock);
+        } catch (RuntimeException e) {
+            unregister(productId, activityId);
+            throw e;
+        }
+        if (!taken) {
+            unregister(productId, activityId);
+            throw new BusinessException("商品库存不足");
+        }
+        TransactionUtils.afterCompletion(() -> addActivityStock(productId, activityId, stock),
+                () -> unregister(productId, activityId));
+
+        log.info("秒杀活动开启成功，商品ID：{}，活动ID：{}", productId, activityId);
+        return "秒杀活动开启成功";
+    }
+
+    /**
+     * 结束秒杀活动
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public String closeActivity(Long productId) {
+        log.info("结束秒杀活动，商品ID：{}", productId);
+
+        // 停止抢购，并把剩余活动库存归还到商品库存
+        Long leftStock = stringRedisTemplate.execute(CLOSE_SCRIPT,
+                Arrays.asList(activityKey(productId), buyersKey(productId)),
+                String.valueOf(CLOSED_ACTIVITY_RETENTION_SECONDS));
+        if (leftStock == null || leftStock < 0) {
+            throw new BusinessException("秒杀活动不存在或已结束");
+        }
+        if (leftStock > 0) {
+            returnProductStock(productId, leftStock.intValue());
+        }
+
+        log.info("秒杀活动结束，商品ID：{}，归还库存：{}", productId, leftStock);
+        return "秒杀活动已结束";
+    }
+
+    /**
+     * 秒杀抢购
+     */
+    @Override
+    public SeckillTicketVO submitOrder(Long userId, SeckillOrderDTO seckillOrderDTO) {
+        Long productId = seckillOrderDTO.getProductId();
+        int quantity = seckillOrderDTO.getQuantity();
+
+        String ticket = "SK" + productId + "-" + UUID.randomUUID().toString().replace("-", "");
+        Long activityId = stringRedisTemplate.execute(ACQUIRE_SCRIPT, ticketKeys(productId, ticket),
+                userId.toString(), String.valueOf(quantity), productId.toString(), ticket,
+                String.valueOf(System.currentTimeMillis()));
+        if (activityId == null || activityId == -1) {
+            throw new BusinessException("秒杀活动不存在或已结束");
+        }
+        if (activityId == -2) {
+            throw new BusinessException("每人限抢一次");
+        }
+        if (activityId == -3) {
+            throw new BusinessException("商品已抢光");
+        }
+
+        SeckillRequest request = new SeckillRequest(ticket, userId, productId, activityId, quantity, seckillOrderDTO);
+        ActivitySnapshot snapshot = snapshots.get(activityId, id -> loadSnapshot(productId, id));
+        if (snapshot == null) {
+            // 抢到名额后活动已被结束并重开
+            releaseStock(request);
+            throw new BusinessException("秒杀活动不存在或已结束");
+        }
+        if (!requestQueue.offer(request.withSnapshot(snapshot))) {
+            // 队列已满，归还名额
+            releaseStock(request);
+            throw new BusinessException("排队人数过多，请稍后重试");
+        }
+
+        return toTicketVO(ticket, productId, TICKET_QUEUED, null, null);
+    }
+
+    /**
+     * 查询排队结果
+     */
+    @Override
+    public SeckillTicketVO getTicket(Long userId, String ticket) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(TICKET_KEY_PREFIX + ticket,
+                Arrays.asList("userId", "productId", "status", "orderId", "orderNo"));
+        if (values.get(0) == null || !values.get(0).equals(userId.toString())) {
+            throw new BusinessException("排队凭证不存在或已过期");
+        }
+        return toTicketVO(ticket, Long.valueOf((String) values.get(1)), Integer.parseInt((String) values.get(2)),
+                values.get(3) != null ? Long.valueOf((String) values.get(3)) : null, (String) values.get(4));
+    }
+
+    /**
+     * 定时处理排队超时的凭证：所在节点宕机时队列中的请求已丢失，
+     * 已写入订单的标记为成功，否则归还名额（归还脚本保证每个凭证只处理一次）
+     */
+    @Scheduled(fixedDelayString = "${mall.seckill.recover-interval-ms:60000}")
+    public void recoverPendingTickets() {
+        long cutoff = System.currentTimeMillis() - pendingTimeoutMs;
+        Set<String> pending = stringRedisTemplate.opsForZSet().rangeByScore(PENDING_KEY, 0, cutoff, 0, batchSize);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        for (String ticket : pending) {
+            try {
+                recoverTicket(ticket);
+            } catch (Exception e) {
+                log.error("处理排队超时的秒杀凭证失败，凭证：{}", ticket, e);
+            }
+        }
+    }
+
+    /**
+     * 处理一个排队超时的凭证
+     */
+    private void recoverTicket(String ticket) {
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(TICKET_KEY_PREFIX + ticket);
+        if (fields.isEmpty()) {
+            stringRedisTemplate.opsForZSet().remove(PENDING_KEY, ticket);
+            return;
+        }
+        Long userId = Long.valueOf((String) fields.get("userId"));
+        Long productId = Long.valueOf((String) fields.get("productId"));
+        LocalDateTime createTime = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(Long.parseLong((String) fields.get("createTime"))), ZoneId.systemDefault());
+
+        // 每人每个活动只能抢一次，排队之后该用户该商品的订单即为这次秒杀写入的订单
+        Order order = orderMapper.findFirstByUserIdAndProductIdSince(userId, productId, createTime);
+        if (order != null) {
+            complete(Collections.singletonList(ticket), Collections.singletonList(order));
+            return;
+        }
+        SeckillRequest request = new SeckillRequest(ticket, userId, productId,
+                Long.valueOf((String) fields.get("activityId")), Integer.parseInt((String) fields.get("quantity")), null);
+        releaseStock(request);
+        log.warn("秒杀凭证排队超时，已归还名额，凭证：{}", ticket);
+    }
+
+    /**
+     * 订单写入循环：取出一个请求后尽量凑满一批再写入
+     */
+    private void writeLoop() {
+        List<SeckillRequest> batch = new ArrayList<>(batchSize);
+        while (running || !requestQueue.isEmpty()) {
+            try {
+                SeckillRequest first = requestQueue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                requestQueue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("秒杀订单写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量写入一批秒杀订单；整批写入失败时逐单重试，只有单独写入也失败的请求才归还名额
+     */
+    private void writeBatch(List<SeckillRequest> batch) {
+        List<SeckillRequest> written = batch;
+        List<Order> orders;
+        try {
+            orders = insertOrders(batch);
+        } catch (Exception e) {
+            log.error("秒杀订单批量写入失败，逐单重试，数量：{}", batch.size(), e);
+            written = new ArrayList<>(batch.size());
+            orders = new ArrayList<>(batch.size());
+            for (SeckillRequest request : batch) {
+                try {
+                    orders.addAll(insertOrders(Collections.singletonList(request)));
+                    written.add(request);
+                } catch (Exception ex) {
+                    log.error("秒杀订单写入失败，凭证：{}", request.ticket, ex);
+                    releaseStock(request);
+                }
+            }
+            if (written.isEmpty()) {
+                return;
+            }
+        }
+
+        Map<Long, Integer> userOrderCounts = new HashMap<>();
+        for (Order order : orders) {
+            userOrderCounts.merge(order.getUserId(), 1, Integer::sum);
+        }
+        orderCountService.changeStatus(userOrderCounts, null, 0);
+        orderTimeoutService.schedule(orders);
+        List<String> tickets = new ArrayList<>(written.size());
+        for (SeckillRequest request : written) {
+            tickets.add(request.ticket);
+        }
+        complete(tickets, orders);
+        log.info("秒杀订单写入成功，数量：{}", orders.size());
+    }
+
+    /**
+     * 在一个事务内写入一批秒杀订单和订单详情
+     * 
+     * @return 写入的订单（与请求一一对应）
+     */
+    private List<Order> insertOrders(List<SeckillRequest> requests) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Order> orders = new ArrayList<>(requests.size());
+            for (SeckillRequest request : requests) {
+                orders.add(buildOrder(request, now));
+            }
+            orderMapper.batchInsert(orders);
+
+            List<OrderItem> orderItems = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                orderItems.add(buildOrderItem(requests.get(i), orders.get(i).getOrderId(), now));
+            }
+            orderItemMapper.batchInsert(orderItems);
+            return orders;
+        });
+    }
+
+    /**
+     * 把排队凭证标记为下单成功
+     */
+    private void complete(List<String> tickets, List<Order> orders) {
+        List<String> keys = new ArrayList<>(tickets.size() + 1);
+        List<String> args = new ArrayList<>(tickets.size() * 3 + 1);
+        keys.add(PENDING_KEY);
+        args.add(String.valueOf(TICKET_RETENTION_SECONDS));
+        for (int i = 0; i < tickets.size(); i++) {
+            keys.add(TICKET_KEY_PREFIX + tickets.get(i));
+            args.add(tickets.get(i));
+            args.add(orders.get(i).getOrderId().toString());
+            args.add(orders.get(i).getOrderNo());
+        }
+        try {
+            stringRedisTemplate.execute(COMPLETE_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            // 凭证仍在排队中，由补偿任务按已写入的订单标记为成功
+            log.error("更新秒杀排队结果失败，数量：{}", tickets.size(), e);
+        }
+    }
+
+    /**
+     * 归还抢到的名额；活动已结束或已重开时直接归还到商品库存
+     */
+    private void releaseStock(SeckillRequest request) {
+        Long result = stringRedisTemplate.execute(RELEASE_SCRIPT, ticketKeys(request.productId, request.ticket),
+                request.activityId.toString(), request.userId.toString(), String.valueOf(request.quantity),
+                request.ticket, String.valueOf(TICKET_RETENTION_SECONDS));
+        if (result != null && result == 0) {
+            returnProductStock(request.productId, request.quantity);
+        }
+    }
+
+    /**
+     * 把划出的商品库存加到活动上；活动已被结束时归还到商品库存
+     */
+    private void addActivityStock(Long productId, Long activityId, int stock) {
+        Long added = stringRedisTemplate.execute(ADD_STOCK_SCRIPT, Collections.singletonList(activityKey(productId)),
+                activityId.toString(), String.valueOf(stock));
+        if (added == null || added == 0) {
+            returnProductStock(productId, stock);
+        }
+    }
+
+    /**
+     * 注销未生效的活动登记
+     */
+    private void unregister(Long productId, Long activityId) {
+        try {
+            stringRedisTemplate.execute(UNREGISTER_SCRIPT, Arrays.asList(activityKey(productId), buyersKey(productId)),
+                    activityId.toString());
+        } catch (Exception e) {
+            // 登记的活动库存为0，残留时只会让之后的开启失败，可先结束活动再重新开启
+            log.error("注销秒杀活动登记失败，商品ID：{}，活动ID：{}", productId, activityId, e);
+        }
+    }
+
+    /**
+     * 从Redis加载活动开启时的商品快照，活动ID已变化时返回null
+     */
+    private ActivitySnapshot loadSnapshot(Long productId, Long activityId) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(activityKey(productId),
+                Arrays.asList("id", "name", "image", "price"));
+        if (!activityId.toString().equals(values.get(0))) {
+            return null;
+        }
+        return new ActivitySnapshot((String) values.get(1), (String) values.get(2), new BigDecimal((String) values.get(3)));
+    }
+
+    /**
+     * 从商品库存中划出库存；启用库存预占时从可售库存中预占，由预占服务异步扣减数据库库存
+     * 
+     * @return 是否划出成功
+     */
+    private boolean takeProductStock(Long productId, int quantity) {
+        if (stockReservationService.isEnabled()) {
+            return stockReservationService.reserve(Collections.singletonMap(productId, quantity)).isEmpty();
+        }
+        return productMapper.decreaseStock(productId, quantity) > 0;
+    }
+
+    /**
+     * 归还库存到商品库存；启用库存预占时归还到可售库存
+     */
+    private void returnProductStock(Long productId, int quantity) {
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.release(Collections.singletonMap(productId, quantity));
+        } else {
+            productMapper.increaseStock(productId, quantity);
+        }
+    }
+
+    private static String activityKey(Long productId) {
+        return ACTIVITY_KEY_PREFIX + productId;
+    }
+
+    private static String buyersKey(Long productId) {
+        return BUYERS_KEY_PREFIX + productId;
+    }
+
+    /**
+     * 抢购和归还脚本使用的键
+     */
+    private static List<String> ticketKeys(Long productId, String ticket) {
+        return Arrays.asList(activityKey(productId), buyersKey(productId), TICKET_KEY_PREFIX + ticket, PENDING_KEY);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static SeckillTicketVO toTicketVO(String ticket, Long productId, int status, Long orderId, String orderNo) {
+        SeckillTicketVO ticketVO = new SeckillTicketVO();
+        ticketVO.setTicket(ticket);
+        ticketVO.setProductId(productId);
+        ticketVO.setStatus(status);
+        ticketVO.setOrderId(orderId);
+        ticketVO.setOrderNo(orderNo);
+        return ticketVO;
+    }
+
+    /**
+     * 构建秒杀订单
+     */
+    private Order buildOrder(SeckillRequest request, LocalDateTime now) {
+        SeckillOrderDTO dto = request.orderDTO;
+        BigDecimal totalAmount = request.snapshot.price.multiply(new BigDecimal(request.quantity));
+
+        Order order = new Order();
+        order.setOrderId(segmentIdGenerator.nextId(Order.class));
+        order.setOrderNo(orderService.generateOrderNo());
+        order.setUserId(request.userId);
+        order.setTotalAmount(totalAmount);
+        order.setPayAmount(totalAmount);
+        order.setShippingFee(BigDecimal.ZERO);
+        order.setDiscountAmount(BigDecimal.ZERO);
+        order.setStatus(0); // 待付款
+        order.setPaymentMethod(dto.getPaymentMethod());
+        order.setPaymentStatus(0); // 未支付
+        order.setReceiverName(dto.getReceiverName());
+        order.setReceiverPhone(dto.getReceiverPhone());
+        order.setReceiverAddress(dto.getReceiverAddress());
+        order.setRemark(dto.getRemark());
+        order.setCreateTime(now);
+        order.setUpdateTime(now);
+        return order;
+    }
+
+    /**
+     * 构建秒杀订单详情
+     */
+    private OrderItem buildOrderItem(SeckillRequest request, Long orderId, LocalDateTime now) {
+        ActivitySnapshot snapshot = request.snapshot;
+
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrderItemId(segmentIdGenerator.nextId(OrderItem.class));
+        orderItem.setOrderId(orderId);
+        orderItem.setProductId(request.productId);
+        orderItem.setProductName(snapshot.productName);
+        orderItem.setProductImage(snapshot.productImage);
+        orderItem.setProductPrice(snapshot.price);
+        orderItem.setQuantity(request.quantity);
+        orderItem.setTotalPrice(snapshot.price.multiply(new BigDecimal(request.quantity)));
+        orderItem.setCreateTime(now);
+        orderItem.setUpdateTime(now);
+        return orderItem;
+    }
+
+    /**
+     * 活动开启时的商品快照
+     */
+    private static class ActivitySnapshot {
+
+        private final String productName;
+
+        private final String productImage;
+
+        private final BigDecimal price;
+
+        ActivitySnapshot(String productName, String productImage, BigDecimal price) {
+            this.productName = productName;
+            this.productImage = productImage;
+            this.price = price;
+        }
+    }
+
+    /**
+     * 排队中的秒杀请求
+     */
+    private static class SeckillRequest {
+
+        private final String ticket;
+
+        private final Long userId;
+
+        private final Long productId;
+
+        private final Long activityId;
+
+        private final int quantity;
+
+        private final SeckillOrderDTO orderDTO;
+
+        private ActivitySnapshot snapshot;
+
+        SeckillRequest(String ticket, Long userId, Long productId, Long activityId, int quantity, SeckillOrderDTO orderDTO) {
+            this.ticket = ticket;
+            this.userId = userId;
+            this.productId = productId;
+            this.activityId = activityId;
+            this.quantity = quantity;
+            this.orderDTO = orderDTO;
+        }
+
+        SeckillRequest withSnapshot(ActivitySnapshot snapshot) {
+            this.snapshot = snapshot;
+            return this;
+        }
+    }
+}
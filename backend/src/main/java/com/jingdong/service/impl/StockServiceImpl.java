@@ -0,0 +1,168 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.StockReservationService;
+import com.jingdong.service.StockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 库存服务实现类
+ * 先按商品ID升序锁定库存行，再用一条语句扣减整单库存；
+ * 商品缓存不含库存，库存变化不再使商品缓存失效，展示时通过getStocks单独读取
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Service
+public class StockServiceImpl implements StockService {
+
+    /**
+     * 每批更新的商品数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * 库存预占服务（延迟注入，避免与库存预占服务循环依赖）
+     */
+    @Lazy
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    /**
+     * 批量查询商品当前库存
+     */
+    @Override
+    public Map<Long, Integer> getStocks(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> stocks = new HashMap<>(productIds.size() * 2);
+        stockReservationService.getAvailableStock(productIds)
+                .forEach((productId, available) -> stocks.put(productId, (int) Math.max(available, 0)));
+        List<Long> missingIds = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (!stocks.containsKey(productId)) {
+                missingIds.add(productId);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (Product product : productMapper.findStocks(missingIds)) {
+                stocks.put(product.getProductId(), product.getStock());
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 批量扣减库存
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> deductStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 按商品ID排序，保证加锁和更新顺序一致
+        TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(quantities);
+
+        // 锁定库存行并找出库存不足的商品
+        List<Product> lockedProducts = productMapper.lockStockByProductIds(sortedQuantities.keySet());
+        Map<Long, Integer> currentStock = new HashMap<>(lockedProducts.size() * 2);
+        for (Product product : lockedProducts) {
+            currentStock.put(product.getProductId(), product.getStock());
+        }
+
+        List<Long> failedProductIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : sortedQuantities.entrySet()) {
+            Integer stock = currentStock.get(entry.getKey());
+            if (stock == null || stock < entry.getValue()) {
+                failedProductIds.add(entry.getKey());
+            }
+        }
+        if (!failedProductIds.isEmpty()) {
+            log.warn("批量扣减库存失败，库存不足的商品ID：{}", failedProductIds);
+            return failedProductIds;
+        }
+
+        // 一条语句扣减整单库存
+        int result = productMapper.batchDecreaseStock(sortedQuantities);
+        if (result != sortedQuantities.size()) {
+            // 行已加锁，理论上不会出现；出现则说明数据异常，直接回滚
+            throw new BusinessException("库存扣减失败");
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 批量调整库存
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void adjustStock(Map<Long, Integer> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return;
+        }
+
+        updateInBatches(deltas, delta -> delta != 0, productMapper::batchAdjustStock);
+    }
+
+    /**
+     * 批量恢复库存
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void restoreStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+
+        updateInBatches(quantities, quantity -> quantity > 0, productMapper::batchIncreaseStock);
+        log.debug("批量恢复库存完成，商品数量：{}", quantities.size());
+    }
+
+    /**
+     * 按商品ID排序分批更新库存，与扣减时的加锁顺序一致，避免与下单互相死锁
+     * 
+     * @param values 商品ID -> 数量
+     * @param filter 需要更新的数量条件
+     * @param update 每批执行的更新语句
+     */
+    private void updateInBatches(Map<Long, Integer> values, IntPredicate filter,
+                                 Consumer<Map<Long, Integer>> update) {
+        TreeMap<Long, Integer> batch = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(values).entrySet()) {
+            if (entry.getValue() == null || !filter.test(entry.getValue())) {
+                continue;
+            }
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= BATCH_SIZE) {
+                update.accept(batch);
+                batch = new TreeMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            update.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.jingdong.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 变化量累加器
+ * 按键累加待写回数据库的变化量，定时任务一次取走全部累计值；
+ * 取走时逐个键原子删除，与并发累加之间不会丢失：删除前的累加包含在取走的值中，之后的累加写入新条目
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public class DeltaAccumulator {
+
+    /**
+     * 累计值（键 -> 变化量），累计为0的键不保留
+     */
+    private final ConcurrentHashMap<Long, Long> deltas = new ConcurrentHashMap<>();
+
+    /**
+     * 累加变化量
+     * 
+     * @param key 键
+     * @param delta 变化量
+     */
+    public void add(Long key, long delta) {
+        if (delta != 0) {
+            deltas.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    /**
+     * 批量累加变化量（如写回失败后放回）
+     * 
+     * @param deltaMap 键到变化量的映射
+     */
+    public void addAll(Map<Long, Long> deltaMap) {
+        deltaMap.forEach(this::add);
+    }
+
+    /**
+     * 获取键当前的累计值
+     * 
+     * @param key 键
+     * @return 累计值，没有时返回0
+     */
+    public long get(Long key) {
+        return deltas.getOrDefault(key, 0L);
+    }
+
+    /**
+     * 取走全部累计值
+     * 
+     * @return 键到变化量的映射
+     */
+    public Map<Long, Long> drain() {
+        Map<Long, Long> drained = new HashMap<>(deltas.size() * 2);
+        for (Long key : deltas.keySet()) {
+            Long delta = deltas.remove(key);
+            if (delta != null && delta != 0) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 是否没有累计值
+     * 
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    /**
+     * 有累计值的键数量
+     * 
+     * @return 键数量
+     */
+    public int size() {
+        return deltas.size();
+    }
+}
@@ -0,0 +1,115 @@
+package com.jingdong.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 订单号生成器
+ * 基于雪花算法在进程内生成单调递增且全局唯一的订单号，无需访问数据库
+ * 结构：41位毫秒时间戳 + 10位机器ID + 12位序列号
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Component
+public class OrderNoGenerator {
+
+    /**
+     * 订单号前缀
+     */
+    private static final String ORDER_NO_PREFIX = "JD";
+
+    /**
+     * 起始时间戳（2025-01-01 00:00:00 UTC+8）
+     */
+    private static final long EPOCH = 1735660800000L;
+
+    /**
+     * 机器ID位数
+     */
+    private static final int WORKER_ID_BITS = 10;
+
+    /**
+     * 序列号位数
+     */
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * 最大机器ID
+     */
+    private static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    /**
+     * 序列号掩码
+     */
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 机器ID（集群内每个节点必须不同，取值0-1023）
+     */
+    @Value("${mall.order-no.worker-id:0}")
+    private long workerId;
+
+    /**
+     * 上次生成订单号的时间戳
+     */
+    private long lastTimestamp = -1L;
+
+    /**
+     * 当前毫秒内的序列号
+     */
+    private long sequence = 0L;
+
+    /**
+     * 校验机器ID配置
+     */
+    @PostConstruct
+    public void init() {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalStateException("订单号机器ID必须在0-" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+    }
+
+    /**
+     * 生成订单号
+     * 
+     * @return 订单号
+     */
+    public String nextOrderNo() {
+        return ORDER_NO_PREFIX + nextId();
+    }
+
+    /**
+     * 生成唯一ID
+     * 时钟回拨或同一毫秒内序列号用尽时，沿用上次的时间戳继续递增，保证单调不重复
+     * 
+     * @return 唯一ID
+     */
+    public synchronized long nextId() {
+        long timestamp = currentTimeMillis();
+        if (timestamp > lastTimestamp) {
+            lastTimestamp = timestamp;
+            sequence = 0L;
+        } else {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0L) {
+                // 当前毫秒的序列号已用尽，借用下一毫秒
+                lastTimestamp++;
+            }
+        }
+        return ((lastTimestamp - EPOCH) << (WORKER_ID_BITS + SEQUENCE_BITS))
+                | (workerId << SEQUENCE_BITS)
+                | sequence;
+    }
+
+    /**
+     * 当前时间戳（测试中可替换为可控时钟）
+     * 
+     * @return 毫秒时间戳
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
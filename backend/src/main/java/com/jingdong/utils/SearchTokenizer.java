@@ -0,0 +1,74 @@
+package com.jingdong.utils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索分词工具
+ * 中文按相邻两字切分（二元组），孤立的单个汉字保留为单字；
+ * 英文和数字按连续的字母数字切分为单词并转为小写，其余字符作为分隔符
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 分词（去重，保持出现顺序）
+     * 
+     * @param text 文本
+     * @return 词项集合
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isHan(c)) {
+                int start = i;
+                while (i < length && isHan(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isHan(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 是否为单个汉字词项（只能匹配孤立的单字，查询时需要退回模糊查询）
+     * 
+     * @param token 词项
+     * @return 是否为单个汉字
+     */
+    public static boolean isSingleHan(String token) {
+        return token.length() == 1 && isHan(token.charAt(0));
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+}
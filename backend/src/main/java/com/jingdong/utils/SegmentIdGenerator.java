@@ -0,0 +1,258 @@
+package com.jingdong.utils;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.jingdong.entity.IdSegment;
+import com.jingdong.mapper.IdSegmentMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 号段主键生成器
+ * 从id_segment表按号段批量申请ID，在内存中逐个发放；
+ * 当前号段用掉10%后异步预取下一个号段（双缓冲），号段切换时无需等待数据库
+ * 作为MyBatis Plus的IdentifierGenerator，为IdType.ASSIGN_ID的实体分配主键；
+ * 实体对应的号段不存在时按业务表当前的最大主键自动插入，不会与已有数据冲突
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Slf4j
+@Component
+public class SegmentIdGenerator implements IdentifierGenerator {
+
+    /**
+     * 当前号段剩余比例低于该值时预取下一个号段
+     */
+    private static final double PRELOAD_THRESHOLD = 0.9;
+
+    /**
+     * 自动插入号段时的号段长度
+     */
+    private static final int DEFAULT_STEP = 1000;
+
+    /**
+     * 号段Mapper（延迟注入，避免与SqlSessionFactory循环依赖）
+     */
+    @Lazy
+    @Autowired
+    private IdSegmentMapper idSegmentMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 独立事务模板，号段分配不受业务事务回滚影响，也不长时间持有号段行锁
+     */
+    private TransactionTemplate segmentTransactionTemplate;
+
+    /**
+     * 号段预取线程
+     */
+    private final ExecutorService preloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "id-segment-preload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 各业务的双缓冲（业务标识 -> 缓冲）
+     */
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * 按实体解析出的主键列（业务标识 -> 主键列名），用于号段不存在时自动插入
+     */
+    private final Map<String, String> keyColumns = new ConcurrentHashMap<>();
+
+    /**
+     * 初始化独立事务模板
+     */
+    @PostConstruct
+    public void init() {
+        segmentTransactionTemplate = new TransactionTemplate(transactionManager);
+        segmentTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 关闭预取线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        preloadExecutor.shutdownNow();
+    }
+
+    /**
+     * 为实体生成主键（业务标识取实体的表名）
+     */
+    @Override
+    public Number nextId(Object entity) {
+        return nextId(resolveBizTag(entity.getClass()));
+    }
+
+    /**
+     * 为实体类型生成主键，用于批量插入前预先分配ID
+     * 
+     * @param entityClass 实体类型
+     * @return 主键
+     */
+    public long nextId(Class<?> entityClass) {
+        return nextId(resolveBizTag(entityClass));
+    }
+
+    /**
+     * 按业务标识生成ID
+     * 
+     * @param bizTag 业务标识
+     * @return ID
+     */
+    public long nextId(String bizTag) {
+        return buffers.computeIfAbsent(bizTag, SegmentBuffer::new).nextId();
+    }
+
+    /**
+     * 解析实体对应的业务标识
+     */
+    private String resolveBizTag(Class<?> entityClass) {
+        TableName tableName = entityClass.getAnnotation(TableName.class);
+        String bizTag = tableName != null ? tableName.value() : entityClass.getSimpleName();
+        if (!keyColumns.containsKey(bizTag)) {
+            TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClass);
+            if (tableInfo != null && tableInfo.getKeyColumn() != null) {
+                keyColumns.put(bizTag, tableInfo.getKeyColumn());
+            }
+        }
+        return bizTag;
+    }
+
+    /**
+     * 从数据库申请一个新号段
+     */
+    private Segment allocateSegment(String bizTag) {
+        IdSegment idSegment = segmentTransactionTemplate.execute(status -> {
+            if (idSegmentMapper.allocateSegment(bizTag) <= 0) {
+                // 号段不存在：按业务表当前的最大主键插入后再分配
+                String keyColumn = keyColumns.get(bizTag);
+                if (keyColumn == null) {
+                    throw new IllegalStateException("号段不存在，请先在id_segment表中配置：" + bizTag);
+                }
+                idSegmentMapper.insertFromMaxId(bizTag, keyColumn, DEFAULT_STEP);
+                log.warn("号段不存在，已按业务表最大主键自动插入，业务标识：{}", bizTag);
+                if (idSegmentMapper.allocateSegment(bizTag) <= 0) {
+                    throw new IllegalStateException("号段初始化失败：" + bizTag);
+                }
+            }
+            return idSegmentMapper.findByBizTag(bizTag);
+        });
+        long maxId = idSegment.getMaxId();
+        int step = idSegment.getStep();
+        log.info("申请号段成功，业务标识：{}，号段：[{}, {}]", bizTag, maxId - step + 1, maxId);
+        return new Segment(maxId - step + 1, maxId + 1, step);
+    }
+
+    /**
+     * 号段（左闭右开区间）
+     */
+    private static class Segment {
+
+        /**
+         * 下一个可发放的ID
+         */
+        private long value;
+
+        /**
+         * 号段上界（不包含）
+         */
+        private final long max;
+
+        /**
+         * 号段长度
+         */
+        private final int step;
+
+        Segment(long start, long max, int step) {
+            this.value = start;
+            this.max = max;
+            this.step = step;
+        }
+
+        long remaining() {
+            return max - value;
+        }
+    }
+
+    /**
+     * 双缓冲：正在使用的号段和预取好的下一个号段
+     */
+    private class SegmentBuffer {
+
+        private final String bizTag;
+
+        private Segment current;
+
+        private Segment next;
+
+        /**
+         * 是否正在预取下一个号段
+         */
+        private boolean loading;
+
+        SegmentBuffer(String bizTag) {
+            this.bizTag = bizTag;
+            this.current = allocateSegment(bizTag);
+        }
+
+        synchronized long nextId() {
+            // 当前号段消耗超过阈值时异步预取下一个号段
+            if (next == null && !loading && current.remaining() < current.step * PRELOAD_THRESHOLD) {
+                loading = true;
+                preloadExecutor.execute(this::preload);
+            }
+
+            if (current.remaining() > 0) {
+                return current.value++;
+            }
+
+            // 当前号段已用完：等待预取完成，预取失败则同步申请
+            while (loading) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待号段预取被中断：" + bizTag, e);
+                }
+            }
+            current = next != null ? next : allocateSegment(bizTag);
+            next = null;
+            return current.value++;
+        }
+
+        private void preload() {
+            Segment segment = null;
+            try {
+                segment = allocateSegment(bizTag);
+            } catch (Exception e) {
+                log.error("预取号段失败，业务标识：{}", bizTag, e);
+            }
+            synchronized (this) {
+                next = segment;
+                loading = false;
+                notifyAll();
+            }
+        }
+    }
+}
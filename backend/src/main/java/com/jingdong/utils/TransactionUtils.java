@@ -0,0 +1,49 @@
+package com.jingdong.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务回调工具
+ * 把内存、Redis等非数据库的副作用推迟到事务提交之后执行，避免事务回滚后副作用已经生效
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * 在当前事务提交后执行；没有事务时立即执行
+     * 
+     * @param action 提交后执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        afterCompletion(action, null);
+    }
+
+    /**
+     * 在当前事务结束后执行回调；没有事务时立即执行提交回调
+     * 
+     * @param onCommit 提交后执行的操作
+     * @param onRollback 回滚后执行的操作（可以为null）
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else if (onRollback != null) {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.jingdong.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 首页数据VO
+ * 一次返回首页需要的分类和各商品楼层
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class HomeFeedVO {
+
+    /**
+     * 顶级分类列表
+     */
+    private List<CategoryVO> categories;
+
+    /**
+     * 导航栏分类列表
+     */
+    private List<CategoryVO> navCategories;
+
+    /**
+     * 推荐商品
+     */
+    private List<ProductVO> recommendProducts;
+
+    /**
+     * 热销商品
+     */
+    private List<ProductVO> hotProducts;
+
+    /**
+     * 新品商品
+     */
+    private List<ProductVO> newProducts;
+
+    /**
+     * 超时或失败的数据项（对应数据为空列表），为空表示数据完整
+     */
+    private List<String> failedSources;
+}
@@ -0,0 +1,36 @@
+package com.jingdong.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量发货结果VO
+ * 用于返回给前端的批量发货结果
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class OrderBatchShipVO {
+
+    /**
+     * 提交的订单数量（去重后）
+     */
+    private Integer totalCount;
+
+    /**
+     * 发货成功的订单数量
+     */
+    private Integer shippedCount;
+
+    /**
+     * 被拒绝的订单ID列表（订单不存在或不是待发货状态）
+     */
+    private List<Long> rejectedOrderIds;
+
+    /**
+     * 无法解析的行数（CSV导入时）
+     */
+    private Integer invalidLineCount;
+}
@@ -0,0 +1,54 @@
+package com.jingdong.vo;
+
+import lombok.Data;
+
+/**
+ * 订单数量统计VO
+ * 用于"我的订单"各状态角标展示
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class OrderCountVO {
+
+    /**
+     * 待付款订单数量
+     */
+    private Long unpaidCount;
+
+    /**
+     * 待发货订单数量
+     */
+    private Long unshippedCount;
+
+    /**
+     * 待收货订单数量
+     */
+    private Long unreceivedCount;
+
+    /**
+     * 待评价订单数量
+     */
+    private Long uncommentedCount;
+
+    /**
+     * 已完成订单数量
+     */
+    private Long completedCount;
+
+    /**
+     * 已取消订单数量
+     */
+    private Long cancelledCount;
+
+    /**
+     * 已退款订单数量
+     */
+    private Long refundedCount;
+
+    /**
+     * 订单总数量
+     */
+    private Long totalCount;
+}
@@ -0,0 +1,36 @@
+package com.jingdong.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 订单游标分页VO
+ * 用于返回给前端的游标分页订单列表
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class OrderCursorPageVO {
+
+    /**
+     * 订单列表
+     */
+    private List<OrderVO> records;
+
+    /**
+     * 每页大小
+     */
+    private Integer pageSize;
+
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+
+    /**
+     * 下一页游标（没有下一页时为空）
+     */
+    private String nextCursor;
+}
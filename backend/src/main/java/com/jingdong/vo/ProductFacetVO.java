@@ -0,0 +1,107 @@
+package com.jingdong.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 商品筛选面板VO
+ * 返回当前筛选条件下各品牌、价格区间、分类的商品数量；
+ * 每个维度的数量不受该维度自身筛选条件影响，便于切换选项
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class ProductFacetVO {
+
+    /**
+     * 符合全部筛选条件的商品数量
+     */
+    private Long total;
+
+    /**
+     * 品牌分布（按商品数量降序）
+     */
+    private List<BrandFacet> brands;
+
+    /**
+     * 价格区间分布（按价格升序）
+     */
+    private List<PriceFacet> priceRanges;
+
+    /**
+     * 分类分布（按商品数量降序）
+     */
+    private List<CategoryFacet> categories;
+
+    /**
+     * 品牌商品数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BrandFacet {
+
+        /**
+         * 品牌
+         */
+        private String brand;
+
+        /**
+         * 商品数量
+         */
+        private Integer count;
+    }
+
+    /**
+     * 价格区间商品数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceFacet {
+
+        /**
+         * 最低价格（包含）
+         */
+        private BigDecimal minPrice;
+
+        /**
+         * 最高价格（不包含，为空表示不限）
+         */
+        private BigDecimal maxPrice;
+
+        /**
+         * 商品数量
+         */
+        private Integer count;
+    }
+
+    /**
+     * 分类商品数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryFacet {
+
+        /**
+         * 分类ID
+         */
+        private Long categoryId;
+
+        /**
+         * 分类名称
+         */
+        private String categoryName;
+
+        /**
+         * 商品数量
+         */
+        private Integer count;
+    }
+}
@@ -0,0 +1,67 @@
+package com.jingdong.vo;
+
+import lombok.Data;
+
+/**
+ * 秒杀排队凭证VO
+ * 用于返回给前端的秒杀排队结果
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+@Data
+public class SeckillTicketVO {
+
+    /**
+     * 排队凭证
+     */
+    private String ticket;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 排队状态（0-排队中，1-下单成功，2-下单失败）
+     */
+    private Integer status;
+
+    /**
+     * 排队状态描述
+     */
+    private String statusDesc;
+
+    /**
+     * 订单ID（下单成功后返回）
+     */
+    private Long orderId;
+
+    /**
+     * 订单号（下单成功后返回）
+     */
+    private String orderNo;
+
+    /**
+     * 设置排队状态描述
+     */
+    public void setStatus(Integer status) {
+        this.status = status;
+        if (status != null) {
+            switch (status) {
+                case 0:
+                    this.statusDesc = "排队中";
+                    break;
+                case 1:
+                    this.statusDesc = "下单成功";
+                    break;
+                case 2:
+                    this.statusDesc = "下单失败";
+                    break;
+                default:
+                    this.statusDesc = "未知状态";
+                    break;
+            }
+        }
+    }
+}
@@ -69,7 +69,8 @@ CREATE TABLE IF NOT EXISTS product (
     deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除',
     INDEX idx_category_id (category_id),
     INDEX idx_status (status),
-    INDEX idx_create_time (create_time)
+    INDEX idx_create_time (create_time),
+    INDEX idx_update_time (update_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品表';
 
 -- 购物车表
@@ -108,10 +109,13 @@ CREATE TABLE IF NOT EXISTS orders (
     create_time DATETIME NOT NULL COMMENT '创建时间',
     update_time DATETIME NOT NULL COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '逻辑删除：0-未删除，1-已删除',
-    INDEX idx_user_id (user_id),
-    INDEX idx_order_no (order_no),
-    INDEX idx_status (status),
-    INDEX idx_create_time (create_time)
+    INDEX idx_status_create_time (status, create_time),
+    INDEX idx_status_ship_time (status, ship_time),
+    INDEX idx_payment_time (payment_time),
+    INDEX idx_create_time (create_time),
+    -- 用户订单列表按状态筛选并按时间倒序翻页、按状态统计订单数量；
+    -- 不筛选状态的“全部订单”在单个用户的订单内排序（单个用户的订单量有限，不再单独建不含状态的索引）
+    INDEX idx_user_deleted_status_time (user_id, deleted, status, create_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
 
 -- 订单详情表
@@ -131,7 +135,24 @@ CREATE TABLE IF NOT EXISTS order_item (
     INDEX idx_product_id (product_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单详情表';
 
+-- 号段表（为订单、订单详情、购物车分配主键）
+CREATE TABLE IF NOT EXISTS id_segment (
+    biz_tag VARCHAR(64) PRIMARY KEY COMMENT '业务标识（表名）',
+    max_id BIGINT NOT NULL DEFAULT 0 COMMENT '已分配出去的最大ID',
+    step INT NOT NULL DEFAULT 1000 COMMENT '每次分配的号段长度',
+    description VARCHAR(200) COMMENT '描述',
+    update_time DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='号段表';
+
 -- 插入初始数据
+-- 插入号段配置（max_id从对应表当前的最大主键开始，已有数据的库也不会分配到重复的ID）
+INSERT IGNORE INTO id_segment (biz_tag, max_id, step, description, update_time)
+SELECT 'orders', COALESCE(MAX(order_id), 0), 1000, '订单ID', NOW() FROM orders;
+INSERT IGNORE INTO id_segment (biz_tag, max_id, step, description, update_time)
+SELECT 'order_item', COALESCE(MAX(order_item_id), 0), 2000, '订单详情ID', NOW() FROM order_item;
+INSERT IGNORE INTO id_segment (biz_tag, max_id, step, description, update_time)
+SELECT 'cart', COALESCE(MAX(cart_id), 0), 1000, '购物车ID', NOW() FROM cart;
+
 -- 插入管理员用户
 INSERT INTO user (username, password, email, phone, real_name, user_type, create_time, update_time) 
 VALUES ('admin', '$2a$10$N.zmdr9k7uOCQb376NoUnuTJ8iAt6Z5EHsM8lE9lBOsl7iKTVEIUi', 'admin@jingdong.com', '13800138000', '管理员', 2, NOW(), NOW());
@@ -0,0 +1,144 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.StockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 进程内库存预占服务测试
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+class LocalStockReservationServiceImplTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    private LocalStockReservationServiceImpl service;
+
+    private StockService stockService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        stockService = mock(StockService.class);
+        product = new Product();
+        product.setProductId(PRODUCT_ID);
+        product.setStock(10);
+        product.setStatus(1);
+        product.setDeleted(0);
+        when(productMapper.findByProductIds(anyList())).thenReturn(Collections.singletonList(product));
+
+        service = new LocalStockReservationServiceImpl();
+        ReflectionTestUtils.setField(service, "productMapper", productMapper);
+        ReflectionTestUtils.setField(service, "stockService", stockService);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "cacheTtlSeconds", 600L);
+    }
+
+    @Test
+    void reserveWarmsUpFromDatabaseAndRejectsInsufficientStock() {
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 3)).isEmpty());
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 7)).isEmpty());
+
+        List<Long> failed = service.reserve(Collections.singletonMap(PRODUCT_ID, 1));
+
+        assertEquals(Collections.singletonList(PRODUCT_ID), failed);
+    }
+
+    @Test
+    void reconcileWritesNetDeltasOnce() {
+        service.reserve(Collections.singletonMap(PRODUCT_ID, 3));
+        service.release(Collections.singletonMap(PRODUCT_ID, 1));
+
+        service.reconcile();
+        service.reconcile();
+
+        verify(stockService, times(1)).adjustStock(Collections.singletonMap(PRODUCT_ID, -2));
+    }
+
+    @Test
+    void failedReconcileKeepsDeltasForRetry() {
+        doThrow(new IllegalStateException("db down")).doNothing().when(stockService).adjustStock(anyMap());
+        service.reserve(Collections.singletonMap(PRODUCT_ID, 3));
+
+        service.reconcile();
+        service.reconcile();
+
+        verify(stockService, times(2)).adjustStock(Collections.singletonMap(PRODUCT_ID, -3));
+    }
+
+    @Test
+    void warmUpIncludesDeltasNotYetWritten() {
+        service.reserve(Collections.singletonMap(PRODUCT_ID, 3));
+        // 模拟可售库存缓存丢失，数据库库存仍是10
+        Map<?, ?> availableStock = (Map<?, ?>) ReflectionTestUtils.getField(service, "availableStock");
+        availableStock.clear();
+
+        assertEquals(Collections.singletonList(PRODUCT_ID), service.reserve(Collections.singletonMap(PRODUCT_ID, 8)));
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 7)).isEmpty());
+        verify(stockService, never()).adjustStock(anyMap());
+    }
+
+    @Test
+    void warmUpCountsDeductionsBeingWritten() {
+        doNothing().when(stockService).adjustStock(anyMap());
+        service.reserve(Collections.singletonMap(PRODUCT_ID, 3));
+        // 取出变化量但尚未结束写回，数据库库存是否已扣减未知，按已扣减前的库存计算
+        Map<Long, Long> flushing = service.takePendingDeltas();
+        Map<?, ?> availableStock = (Map<?, ?>) ReflectionTestUtils.getField(service, "availableStock");
+        availableStock.clear();
+
+        assertEquals(Collections.singletonMap(PRODUCT_ID, -3L), flushing);
+        assertEquals(Collections.singletonList(PRODUCT_ID), service.reserve(Collections.singletonMap(PRODUCT_ID, 8)));
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 7)).isEmpty());
+    }
+
+    @Test
+    void invalidatePicksUpStockChangedOutsideReservation() {
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 10)).isEmpty());
+        assertEquals(Collections.singletonList(PRODUCT_ID), service.reserve(Collections.singletonMap(PRODUCT_ID, 1)));
+
+        // 后台补货10件，数据库库存变为20，尚未写回的扣减仍是10
+        product.setStock(20);
+        service.invalidate(Collections.singletonList(PRODUCT_ID));
+
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 10)).isEmpty());
+        assertEquals(Collections.singletonList(PRODUCT_ID), service.reserve(Collections.singletonMap(PRODUCT_ID, 1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiredStockIsWarmedUpAgain() {
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 4)).isEmpty());
+
+        // 缓存过期，按数据库库存12减去尚未写回的扣减4重新预热
+        product.setStock(12);
+        Map<Long, Long> expireTimes = (Map<Long, Long>) ReflectionTestUtils.getField(service, "expireTimes");
+        expireTimes.put(PRODUCT_ID, 0L);
+
+        assertEquals(Collections.singletonList(PRODUCT_ID), service.reserve(Collections.singletonMap(PRODUCT_ID, 9)));
+        assertTrue(service.reserve(Collections.singletonMap(PRODUCT_ID, 8)).isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.jingdong.service.impl;
+
+import com.jingdong.entity.Product;
+import com.jingdong.exception.BusinessException;
+import com.jingdong.mapper.OrderItemMapper;
+import com.jingdong.mapper.ProductMapper;
+import com.jingdong.service.ProductSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品销量服务测试
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+class ProductSalesServiceImplTest {
+
+    private ProductSalesServiceImpl service;
+
+    private ProductMapper productMapper;
+
+    private OrderItemMapper orderItemMapper;
+
+    private ProductSearchService productSearchService;
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        orderItemMapper = mock(OrderItemMapper.class);
+        productSearchService = mock(ProductSearchService.class);
+
+        service = new ProductSalesServiceImpl();
+        ReflectionTestUtils.setField(service, "productMapper", productMapper);
+        ReflectionTestUtils.setField(service, "orderItemMapper", orderItemMapper);
+        ReflectionTestUtils.setField(service, "productSearchService", productSearchService);
+        ReflectionTestUtils.setField(service, "rankingSize", 10);
+    }
+
+    @Test
+    void rebuildKeepsTodaySalesRecordedInMemory() {
+        LocalDate today = LocalDate.now();
+        when(orderItemMapper.sumDailySalesSince(any())).thenReturn(Collections.singletonList(row(today, 1L, 5)));
+        service.rebuild();
+
+        // 首次重建后本节点记录的销量只在内存中，再次重建不能丢失，也不能与数据库重复累加
+        service.recordSales(Collections.singletonMap(2L, 8));
+        when(orderItemMapper.sumDailySalesSince(any())).thenReturn(Arrays.asList(
+                row(today, 1L, 5), row(today, 2L, 8), row(today.minusDays(1), 3L, 6)));
+        service.rebuild();
+
+        assertEquals(Arrays.asList(2L, 3L, 1L), service.getTopProductIds(30, 10));
+        assertEquals(Arrays.asList(2L, 3L, 1L), service.getTopProductIds(7, 10));
+    }
+
+    @Test
+    void flushRetriesFailedDeltasWithLaterSales() {
+        when(productMapper.batchIncreaseSalesCount(anyMap()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(1);
+        service.recordSales(Collections.singletonMap(1L, 2));
+        service.flush();
+
+        // 失败的销量放回内存，与之后的销量合并写回
+        service.recordSales(Collections.singletonMap(1L, 3));
+        service.flush();
+
+        verify(productMapper, times(1)).batchIncreaseSalesCount(Collections.singletonMap(1L, 5L));
+    }
+
+    @Test
+    void flushSyncsSearchIndexWithSalesCountsReadBack() {
+        Product product = new Product();
+        product.setProductId(1L);
+        product.setSalesCount(12);
+        when(productMapper.findSalesCounts(any())).thenReturn(Collections.singletonList(product));
+
+        // 索引按数据库中的最新销量覆盖，而不是在索引中的值上再累加一次
+        service.recordSales(Collections.singletonMap(1L, 2));
+        service.flush();
+
+        verify(productSearchService).updateSalesCounts(Collections.singletonMap(1L, 12L));
+    }
+
+    @Test
+    void rankingOnlySupportsSevenAndThirtyDays() {
+        assertThrows(BusinessException.class, () -> service.getTopProductIds(15, 10));
+        assertEquals(Collections.emptyList(), service.getTopProductIds(30, 10));
+    }
+
+    private Map<String, Object> row(LocalDate salesDate, Long productId, long quantity) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("salesDate", salesDate.toString());
+        row.put("productId", productId);
+        row.put("quantity", quantity);
+        return row;
+    }
+}
@@ -0,0 +1,77 @@
+package com.jingdong.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 变化量累加器测试
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+class DeltaAccumulatorTest {
+
+    @Test
+    void drainReturnsNetDeltasAndEmptiesAccumulator() {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        accumulator.add(1L, 3);
+        accumulator.add(1L, -1);
+        accumulator.add(2L, 5);
+        accumulator.add(2L, -5);
+
+        Map<Long, Long> drained = accumulator.drain();
+
+        assertEquals(1, drained.size());
+        assertEquals(2L, drained.get(1L));
+        assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    void concurrentAddsAreNotLostWhileDraining() throws Exception {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        int threads = 8;
+        int addsPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean adding = new AtomicBoolean(true);
+        AtomicLong drainedTotal = new AtomicLong();
+
+        Thread drainer = new Thread(() -> {
+            while (adding.get()) {
+                accumulator.drain().values().forEach(drainedTotal::addAndGet);
+            }
+        });
+        drainer.start();
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < addsPerThread; j++) {
+                    accumulator.add((long) (j % 4), 1);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        adding.set(false);
+        drainer.join();
+        accumulator.drain().values().forEach(drainedTotal::addAndGet);
+
+        assertEquals((long) threads * addsPerThread, drainedTotal.get());
+    }
+}
@@ -0,0 +1,120 @@
+package com.jingdong.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号生成器测试
+ * 
+ * @author huangtao
+ * @date 2025-08-09
+ */
+class OrderNoGeneratorTest {
+
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        OrderNoGenerator generator = newGenerator(new OrderNoGenerator(), 7);
+        int threads = 8;
+        int idsPerThread = 50000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Callable<Boolean> task = () -> {
+                start.await();
+                long last = Long.MIN_VALUE;
+                boolean increasing = true;
+                for (int j = 0; j < idsPerThread; j++) {
+                    long id = generator.nextId();
+                    increasing &= id > last;
+                    last = id;
+                    ids.add(id);
+                }
+                return increasing;
+            };
+            results.add(executor.submit(task));
+        }
+        start.countDown();
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    void clockRollbackKeepsIdsIncreasing() {
+        ManualClockGenerator generator = newGenerator(new ManualClockGenerator(), 1);
+        generator.now = 1754697600000L;
+        long beforeRollback = generator.nextId();
+
+        generator.now -= 5000;
+        long afterRollback = generator.nextId();
+        long next = generator.nextId();
+
+        assertTrue(afterRollback > beforeRollback);
+        assertTrue(next > afterRollback);
+
+        // 时钟追上之前的时间后继续递增
+        generator.now += 10000;
+        assertTrue(generator.nextId() > next);
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsNextMillisecond() {
+        ManualClockGenerator generator = newGenerator(new ManualClockGenerator(), 1);
+        generator.now = 1754697600000L;
+        long last = generator.nextId();
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    @Test
+    void orderNoCarriesPrefix() {
+        OrderNoGenerator generator = newGenerator(new OrderNoGenerator(), 0);
+        assertTrue(generator.nextOrderNo().startsWith("JD"));
+    }
+
+    @Test
+    void invalidWorkerIdIsRejected() {
+        assertThrows(IllegalStateException.class, () -> newGenerator(new OrderNoGenerator(), 1024));
+    }
+
+    private static <T extends OrderNoGenerator> T newGenerator(T generator, long workerId) {
+        ReflectionTestUtils.setField(generator, "workerId", workerId);
+        generator.init();
+        return generator;
+    }
+
+    /**
+     * 时钟可控的订单号生成器
+     */
+    private static class ManualClockGenerator extends OrderNoGenerator {
+
+        private long now;
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
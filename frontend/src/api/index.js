@@ -119,6 +119,12 @@ const api = {
     checkPhone: (phone) => request.get('/user/check/phone', { params: { phone } })
   },
 
+  // 首页相关接口
+  home: {
+    // 获取首页数据（分类、导航分类、推荐、热销、新品一次返回）
+    getHomeFeed: (limit = 8) => request.get('/home/feed', { params: { limit } })
+  },
+
   // 商品相关接口
   product: {
     // 获取商品列表
@@ -127,6 +133,8 @@ const api = {
     getProductDetail: (id) => request.get(`/product/${id}`),
     // 搜索商品
     searchProducts: (params) => request.get('/product/search', { params }),
+    // 获取商品筛选面板（品牌、价格区间、分类的商品数量）
+    getProductFacets: (params) => request.get('/product/facets', { params }),
     // 获取推荐商品
     getRecommendProducts: (limit = 10) => request.get('/product/recommend', { params: { limit } }),
     // 获取热销商品
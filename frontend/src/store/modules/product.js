@@ -209,6 +209,25 @@ const product = {
       }
     },
 
+    /**
+     * 获取首页数据（一次请求返回分类和各商品楼层）
+     */
+    async getHomeFeed({ commit, dispatch }, limit = 8) {
+      try {
+        const response = await api.home.getHomeFeed(limit)
+        const feed = response.data.data || {}
+        commit('SET_CATEGORIES', feed.categories || [])
+        commit('SET_NAV_CATEGORIES', feed.navCategories || [])
+        commit('SET_RECOMMEND_PRODUCTS', feed.recommendProducts || [])
+        commit('SET_HOT_PRODUCTS', feed.hotProducts || [])
+        commit('SET_NEW_PRODUCTS', feed.newProducts || [])
+        return Promise.resolve(feed)
+      } catch (error) {
+        dispatch('showError', '获取首页数据失败', { root: true })
+        return Promise.reject(error)
+      }
+    },
+
     /**
      * 获取推荐商品
      */